@@ -0,0 +1,90 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single benchmark run by the BenchmarkRunner. The runner calls run over and over until an iteration's time is up
+ * and divides the time by the number of operations run reported.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public abstract class Benchmark {
+	/** The name of the benchmark */
+	private String name;
+
+	/** The parameters the benchmark was run with in the order they were added */
+	private LinkedHashMap<String, String> params = new LinkedHashMap<String, String>();
+
+	/** Where the benchmarks put their results so the JIT can't throw away the work */
+	protected long sink;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 *            The name of the benchmark
+	 */
+	public Benchmark(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Adds a parameter to report with the results
+	 * 
+	 * @param key
+	 *            The name of the parameter
+	 * @param value
+	 *            The value of the parameter
+	 */
+	protected void addParam(String key, Object value) {
+		params.put(key, String.valueOf(value));
+	}
+
+	/**
+	 * Gets the name of the benchmark
+	 * 
+	 * @return The name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the parameters the benchmark was run with
+	 * 
+	 * @return The parameters
+	 */
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	/**
+	 * Gets the value of all of the results so far
+	 * 
+	 * @return The sink
+	 */
+	public long getSink() {
+		return sink;
+	}
+
+	/**
+	 * Creates everything the benchmark needs before it is timed
+	 * 
+	 * @throws Exception
+	 */
+	public void setup() throws Exception {
+	}
+
+	/**
+	 * Runs the benchmarked code
+	 * 
+	 * @return The number of operations that were run
+	 * @throws Exception
+	 */
+	public abstract long run() throws Exception;
+
+	@Override
+	public String toString() {
+		return name + params;
+	}
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+
+/**
+ * Runs BoggleMapper outside of a cluster for the benchmarks. Every record the mapper writes is serialized the same
+ * way a SequenceFile would so the benchmarks include the serialization cost.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BenchmarkMapContext {
+	/** The counters the mapper updates */
+	private Counters counters = new Counters();
+
+	/** The buffer the written records are serialized to */
+	private DataOutputBuffer buffer = new DataOutputBuffer();
+
+	/** The records that still need their children expanded, if they're being kept */
+	private ArrayList<Record> frontier;
+
+	/** The number of records written */
+	private long records;
+
+	/** The number of bytes written */
+	private long bytes;
+
+	/** The mapper's context */
+	private Mapper<NullWritable, RollGraphWritable, Writable, RollGraphWritable>.Context context;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param configuration
+	 *            The configuration for the mapper
+	 * @param keepFrontier
+	 *            If copies of the written records that still need to be expanded should be kept
+	 */
+	public BenchmarkMapContext(Configuration configuration, boolean keepFrontier) {
+		if (keepFrontier) {
+			frontier = new ArrayList<Record>();
+		}
+
+		TaskAttemptID taskAttemptID = new TaskAttemptID("benchmark", 0, TaskType.MAP, 0, 0);
+
+		MapContextImpl<NullWritable, RollGraphWritable, Writable, RollGraphWritable> mapContext = new MapContextImpl<NullWritable, RollGraphWritable, Writable, RollGraphWritable>(
+				configuration, taskAttemptID, null, new SerializingRecordWriter(), null, new CountersReporter(), null);
+
+		context = new WrappedMapper<NullWritable, RollGraphWritable, Writable, RollGraphWritable>()
+				.getMapContext(mapContext);
+	}
+
+	/**
+	 * Gets the context to pass to the mapper
+	 * 
+	 * @return The context
+	 */
+	public Mapper<NullWritable, RollGraphWritable, Writable, RollGraphWritable>.Context getContext() {
+		return context;
+	}
+
+	/**
+	 * Gets the counters the mapper updated
+	 * 
+	 * @return The counters
+	 */
+	public Counters getCounters() {
+		return counters;
+	}
+
+	/**
+	 * Gets and clears the kept frontier
+	 * 
+	 * @return The records that still need their children expanded
+	 */
+	public ArrayList<Record> takeFrontier() {
+		ArrayList<Record> taken = frontier;
+		frontier = new ArrayList<Record>();
+
+		return taken;
+	}
+
+	/**
+	 * Gets the number of records written
+	 * 
+	 * @return The number of records
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Gets the number of serialized bytes written
+	 * 
+	 * @return The number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * A copy of a record for use as the mapper's input
+	 */
+	public static class Record {
+		/** The nodes making up the characters */
+		public RollGraphWritable value;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param value
+		 *            The nodes making up the characters
+		 */
+		public Record(RollGraphWritable value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Serializes the written records in to a reused buffer
+	 */
+	private class SerializingRecordWriter extends RecordWriter<Writable, RollGraphWritable> {
+		@Override
+		public void write(Writable key, RollGraphWritable value) throws IOException {
+			buffer.reset();
+			key.write(buffer);
+			value.write(buffer);
+
+			records++;
+			bytes += buffer.getLength();
+
+			if (frontier != null && !value.isFinal) {
+				frontier.add(new Record(new RollGraphWritable(value)));
+			}
+		}
+
+		@Override
+		public void close(TaskAttemptContext context) {
+		}
+	}
+
+	/**
+	 * Keeps the mapper's counters
+	 */
+	private class CountersReporter extends StatusReporter {
+		@Override
+		public Counter getCounter(Enum<?> name) {
+			return counters.findCounter(name);
+		}
+
+		@Override
+		public Counter getCounter(String group, String name) {
+			return counters.findCounter(group, name);
+		}
+
+		@Override
+		public void progress() {
+		}
+
+		@Override
+		public float getProgress() {
+			return 0;
+		}
+
+		@Override
+		public void setStatus(String status) {
+		}
+	}
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs benchmarks for a number of timed warmup and measured iterations and writes the results out as JSON. The
+ * results are the average time and heap bytes allocated per operation with the standard deviation across the measured
+ * iterations.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BenchmarkRunner {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The number of iterations to run before measuring */
+	private int warmupIterations;
+
+	/** The number of iterations that are measured */
+	private int measurementIterations;
+
+	/** The minimum time for an iteration in milliseconds */
+	private long iterationMillis;
+
+	/** Only the benchmarks whose name and parameters match are run */
+	private Pattern filter;
+
+	/** The results of the benchmarks run so far */
+	private ArrayList<Result> results = new ArrayList<Result>();
+
+	/** The bean for the bytes allocated by the thread */
+	private com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param warmupIterations
+	 *            The number of iterations to run before measuring
+	 * @param measurementIterations
+	 *            The number of iterations that are measured
+	 * @param iterationMillis
+	 *            The minimum time for an iteration in milliseconds
+	 * @param filter
+	 *            The regular expression the benchmarks' names and parameters have to contain to be run
+	 */
+	public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis, String filter) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMillis = iterationMillis;
+		this.filter = Pattern.compile(filter);
+	}
+
+	/**
+	 * Sets up and runs a benchmark if it matches the filter
+	 * 
+	 * @param benchmark
+	 *            The benchmark to run
+	 * @throws Exception
+	 */
+	public void run(Benchmark benchmark) throws Exception {
+		if (!filter.matcher(benchmark.toString()).find()) {
+			return;
+		}
+
+		logger.info("Running " + benchmark);
+
+		benchmark.setup();
+
+		for (int i = 0; i < warmupIterations; i++) {
+			runIteration(benchmark, null, 0);
+		}
+
+		Result result = new Result(benchmark, measurementIterations);
+
+		for (int i = 0; i < measurementIterations; i++) {
+			runIteration(benchmark, result, i);
+		}
+
+		results.add(result);
+
+		System.out.println(String.format("%-75s %15.1f ns/op +- %10.1f %12.1f B/op", benchmark, result.getMean(),
+				result.getStandardDeviation(), result.allocatedBytesPerOp));
+	}
+
+	/**
+	 * Runs the benchmark until the iteration's time is up
+	 * 
+	 * @param benchmark
+	 *            The benchmark to run
+	 * @param result
+	 *            The result to add the iteration to or null if the iteration isn't measured
+	 * @param iteration
+	 *            The number of the measured iteration
+	 * @throws Exception
+	 */
+	private void runIteration(Benchmark benchmark, Result result, int iteration) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		long iterationNanos = iterationMillis * 1000000L;
+
+		long operations = 0;
+		long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+		long startTime = System.nanoTime();
+		long elapsedTime;
+
+		do {
+			operations += benchmark.run();
+			elapsedTime = System.nanoTime() - startTime;
+		} while (elapsedTime < iterationNanos);
+
+		long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+		if (result != null) {
+			result.nanosPerOp[iteration] = (double) elapsedTime / operations;
+			result.allocatedBytesPerOp += (double) allocatedBytes / operations / measurementIterations;
+			result.operations += operations;
+		}
+	}
+
+	/**
+	 * Writes the results of all benchmarks run as a JSON array
+	 * 
+	 * @param fileSystem
+	 *            The file system to write to
+	 * @param path
+	 *            The file to write the results to
+	 * @throws IOException
+	 */
+	public void writeResults(FileSystem fileSystem, Path path) throws IOException {
+		Writer writer = new OutputStreamWriter(fileSystem.create(path), "UTF-8");
+
+		try {
+			writer.write("[\n");
+
+			for (int i = 0; i < results.size(); i++) {
+				writer.write(results.get(i).toJson());
+				writer.write(i < results.size() - 1 ? ",\n" : "\n");
+			}
+
+			writer.write("]\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Puts a string in quotes and escapes it for JSON
+	 * 
+	 * @param value
+	 *            The string to quote
+	 * @return The quoted string
+	 */
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	/**
+	 * The measurements for a benchmark
+	 */
+	private class Result {
+		/** The benchmark that was measured */
+		private Benchmark benchmark;
+
+		/** The average time for an operation for every measured iteration */
+		private double[] nanosPerOp;
+
+		/** The average heap bytes allocated for an operation across the measured iterations */
+		private double allocatedBytesPerOp;
+
+		/** The number of operations run in the measured iterations */
+		private long operations;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param benchmark
+		 *            The benchmark that was measured
+		 * @param iterations
+		 *            The number of measured iterations
+		 */
+		public Result(Benchmark benchmark, int iterations) {
+			this.benchmark = benchmark;
+			nanosPerOp = new double[iterations];
+		}
+
+		/**
+		 * Gets the average time for an operation across the measured iterations
+		 * 
+		 * @return The average time in nanoseconds
+		 */
+		public double getMean() {
+			double sum = 0;
+
+			for (double value : nanosPerOp) {
+				sum += value;
+			}
+
+			return sum / nanosPerOp.length;
+		}
+
+		/**
+		 * Gets the standard deviation of the time for an operation across the measured iterations
+		 * 
+		 * @return The standard deviation in nanoseconds
+		 */
+		public double getStandardDeviation() {
+			double mean = getMean();
+			double sum = 0;
+
+			for (double value : nanosPerOp) {
+				sum += (value - mean) * (value - mean);
+			}
+
+			return nanosPerOp.length > 1 ? Math.sqrt(sum / (nanosPerOp.length - 1)) : 0;
+		}
+
+		/**
+		 * Formats the result as a JSON object
+		 * 
+		 * @return The JSON
+		 */
+		public String toJson() {
+			StringBuilder json = new StringBuilder();
+
+			json.append("  {\"benchmark\": ").append(quote(benchmark.getName()));
+
+			json.append(", \"params\": {");
+			boolean first = true;
+
+			for (Map.Entry<String, String> param : benchmark.getParams().entrySet()) {
+				json.append(first ? "" : ", ").append(quote(param.getKey())).append(": ")
+						.append(quote(param.getValue()));
+				first = false;
+			}
+
+			json.append("}");
+
+			json.append(", \"mode\": \"avgt\", \"unit\": \"ns/op\"");
+			json.append(", \"score\": ").append(getMean());
+			json.append(", \"scoreStdDev\": ").append(getStandardDeviation());
+			json.append(", \"opsPerSecond\": ").append(1000000000.0 / getMean());
+			json.append(", \"allocatedBytesPerOp\": ").append(allocatedBytesPerOp);
+			json.append(", \"operations\": ").append(operations);
+			json.append(", \"warmupIterations\": ").append(warmupIterations);
+			json.append(", \"iterationMillis\": ").append(iterationMillis);
+
+			json.append(", \"rawData\": [");
+
+			for (int i = 0; i < nanosPerOp.length; i++) {
+				json.append(i == 0 ? "" : ", ").append(nanosPerOp[i]);
+			}
+
+			json.append("]}");
+
+			return json.toString();
+		}
+	}
+}
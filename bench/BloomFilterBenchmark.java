@@ -0,0 +1,128 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Benchmarks membership tests against the Bloom Filter. The keys are either prefixes of dictionary words, which all
+ * pass, or random letters, which mostly don't. The filter is either read on to the heap or memory mapped from a
+ * local file. An operation is one membership test.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BloomFilterBenchmark extends Benchmark {
+	/** The number of keys tested in every run */
+	private static final int KEYS = 4096;
+
+	/** The configuration with the Bloom Filter and dictionary */
+	private Configuration configuration;
+
+	/** If the keys are random letters instead of dictionary prefixes */
+	private boolean random;
+
+	/** The seed for the random keys */
+	private long seed;
+
+	/** If the filter is memory mapped instead of read on to the heap */
+	private boolean mapped;
+
+	/** The Bloom Filter being tested */
+	private MappedBloomFilter bloomFilter;
+
+	/** The keys to test */
+	private byte[][] keys;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param configuration
+	 *            The configuration with the Bloom Filter and dictionary
+	 * @param random
+	 *            If the keys are random letters instead of dictionary prefixes
+	 * @param seed
+	 *            The seed for picking the keys
+	 * @param mapped
+	 *            If the filter is memory mapped from a local file instead of read on to the heap
+	 */
+	public BloomFilterBenchmark(Configuration configuration, boolean random, long seed, boolean mapped) {
+		super("bloomfilter.membershiptest");
+
+		this.configuration = configuration;
+		this.random = random;
+		this.seed = seed;
+		this.mapped = mapped;
+
+		addParam("keys", random ? "random" : "prefixes");
+		addParam("seed", seed);
+		addParam("storage", mapped ? "mapped" : "heap");
+	}
+
+	@Override
+	public void setup() throws Exception {
+		FileSystem fileSystem = FileSystem.get(configuration);
+
+		// Load the Bloom Filter the same ways the mapper does
+		if (mapped) {
+			bloomFilter = MappedBloomFilter.map(new File(configuration.get(BoggleDriver.BLOOM_PARAM)));
+		} else {
+			bloomFilter = MappedBloomFilter.load(fileSystem, new Path(configuration.get(BoggleDriver.BLOOM_PARAM)));
+		}
+
+		Random randomGenerator = new Random(seed);
+		keys = new byte[KEYS][];
+
+		if (random) {
+			for (int i = 0; i < KEYS; i++) {
+				char[] letters = new char[3 + randomGenerator.nextInt(6)];
+
+				for (int j = 0; j < letters.length; j++) {
+					letters[j] = (char) ('a' + randomGenerator.nextInt(26));
+				}
+
+				keys[i] = new String(letters).getBytes();
+			}
+		} else {
+			ArrayList<String> prefixes = readPrefixes(fileSystem);
+
+			for (int i = 0; i < KEYS; i++) {
+				keys[i] = prefixes.get(randomGenerator.nextInt(prefixes.size())).getBytes();
+			}
+		}
+	}
+
+	/**
+	 * Reads all prefixes of the words in the dictionary
+	 * 
+	 * @param fileSystem
+	 *            The file system with the dictionary
+	 * @return The prefixes
+	 * @throws Exception
+	 */
+	private ArrayList<String> readPrefixes(FileSystem fileSystem) throws Exception {
+		ArrayList<String> prefixes = new ArrayList<String>();
+
+		for (String word : DictionaryCompiler.readWords(fileSystem,
+				new Path(configuration.get(BoggleDriver.DICTIONARY_PARAM)))) {
+			for (int i = 1; i <= word.length(); i++) {
+				prefixes.add(word.substring(0, i));
+			}
+		}
+
+		return prefixes;
+	}
+
+	@Override
+	public long run() throws Exception {
+		for (byte[] key : keys) {
+			if (bloomFilter.membershipTest(key, key.length)) {
+				sink++;
+			}
+		}
+
+		return KEYS;
+	}
+}
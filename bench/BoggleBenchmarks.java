@@ -0,0 +1,135 @@
+import java.io.File;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Runs the benchmark suite without a cluster and writes the results as JSON so they can be compared across releases.
+ * Covers BoggleMapper's expansion, RollGraphWritable serialization, Bloom Filter membership tests and the dictionary
+ * loading in BoggleWordMapper.setup.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleBenchmarks extends Configured implements Tool {
+	/** The number of warmup iterations for each benchmark */
+	public static final String WARMUP_ITERATIONS_PARAM = "benchwarmupiterations";
+
+	/** The default number of warmup iterations */
+	public static final int WARMUP_ITERATIONS_DEFAULT = 5;
+
+	/** The number of measured iterations for each benchmark */
+	public static final String MEASUREMENT_ITERATIONS_PARAM = "benchiterations";
+
+	/** The default number of measured iterations */
+	public static final int MEASUREMENT_ITERATIONS_DEFAULT = 10;
+
+	/** The minimum time for each iteration in milliseconds */
+	public static final String ITERATION_MILLIS_PARAM = "benchiterationmillis";
+
+	/** The default minimum time for each iteration */
+	public static final long ITERATION_MILLIS_DEFAULT = 1000;
+
+	/** The regular expression the benchmarks' names and parameters have to contain to be run */
+	public static final String FILTER_PARAM = "benchfilter";
+
+	/** The seed for the rolls and keys */
+	public static final String SEED_PARAM = "benchseed";
+
+	/** The default seed */
+	public static final long SEED_DEFAULT = 1;
+
+	/** The number of iterations of records the mapper benchmarks expand */
+	public static final String DEPTH_PARAM = "benchdepth";
+
+	/** The default number of iterations of records */
+	public static final int DEPTH_DEFAULT = 3;
+
+	/** The roll versions for the mapper benchmarks. 4x4, 5x5, 8x8 and 12x12. */
+	private static final int[] ROLL_VERSIONS = { BoggleRoll.NEW_VERSION, BoggleRoll.BIG_BOGGLE_VERSION, 8, 12 };
+
+	/** The path lengths for the RollGraphWritable benchmarks */
+	private static final int[] PATH_LENGTHS = { 4, 8, 16, 32 };
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length < 3 || args.length > 4) {
+			System.out.println("Usage: BoggleBenchmarks <bloomfile> <dictionary> <resultsfile> [triefile]");
+			return -1;
+		}
+
+		Configuration configuration = getConf();
+
+		long seed = configuration.getLong(SEED_PARAM, SEED_DEFAULT);
+		int depth = configuration.getInt(DEPTH_PARAM, DEPTH_DEFAULT);
+
+		BenchmarkRunner runner = new BenchmarkRunner(configuration.getInt(WARMUP_ITERATIONS_PARAM,
+				WARMUP_ITERATIONS_DEFAULT), configuration.getInt(MEASUREMENT_ITERATIONS_PARAM,
+				MEASUREMENT_ITERATIONS_DEFAULT), configuration.getLong(ITERATION_MILLIS_PARAM, ITERATION_MILLIS_DEFAULT),
+				configuration.get(FILTER_PARAM, ""));
+
+		// The Bloom Filter and trie get their own configurations so only one of them is used at a time
+		Configuration bloomConfiguration = new Configuration(configuration);
+		bloomConfiguration.set(BoggleDriver.BLOOM_PARAM, args[0]);
+		bloomConfiguration.set(BoggleDriver.DICTIONARY_PARAM, args[1]);
+
+		Configuration trieConfiguration = null;
+
+		if (args.length == 4) {
+			trieConfiguration = new Configuration(bloomConfiguration);
+			trieConfiguration.set(BoggleDriver.TRIE_PARAM, args[3]);
+		}
+
+		for (int version : ROLL_VERSIONS) {
+			runner.run(new MapperExpansionBenchmark(new Configuration(bloomConfiguration), "bloom", version, seed,
+					depth));
+
+			if (trieConfiguration != null) {
+				runner.run(new MapperExpansionBenchmark(new Configuration(trieConfiguration), "trie", version, seed,
+						depth));
+			}
+		}
+
+		for (int length : PATH_LENGTHS) {
+			runner.run(new RollGraphWritableBenchmark(false, length));
+			runner.run(new RollGraphWritableBenchmark(true, length));
+		}
+
+		runner.run(new BloomFilterBenchmark(bloomConfiguration, false, seed, false));
+		runner.run(new BloomFilterBenchmark(bloomConfiguration, true, seed, false));
+
+		if (new File(args[0]).exists()) {
+			// Only a local file can be memory mapped
+			runner.run(new BloomFilterBenchmark(bloomConfiguration, false, seed, true));
+			runner.run(new BloomFilterBenchmark(bloomConfiguration, true, seed, true));
+		}
+
+		// The final job always gets a compiled dictionary
+		File compiledDictionary = File.createTempFile("dictionary", ".out");
+		compiledDictionary.deleteOnExit();
+		DictionaryCompiler.compile(FileSystem.get(configuration), new Path(args[1]),
+				new Path(compiledDictionary.getAbsolutePath()));
+
+		Configuration compiledConfiguration = new Configuration(bloomConfiguration);
+		compiledConfiguration.set(BoggleDriver.DICTIONARY_PARAM, compiledDictionary.getAbsolutePath());
+
+		runner.run(new DictionaryLoadBenchmark(compiledConfiguration, "compiled"));
+
+		if (trieConfiguration != null) {
+			runner.run(new DictionaryLoadBenchmark(trieConfiguration, "trie"));
+		}
+
+		runner.writeResults(FileSystem.get(configuration), new Path(args[2]));
+
+		return 0;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int exitCode = ToolRunner.run(new Configuration(), new BoggleBenchmarks(), args);
+		System.exit(exitCode);
+	}
+}
@@ -0,0 +1,37 @@
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Benchmarks loading the dictionary the way BoggleWordMapper.setup does. An operation is one load.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class DictionaryLoadBenchmark extends Benchmark {
+	/** The configuration with the dictionary or trie */
+	private Configuration configuration;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param configuration
+	 *            The configuration with the dictionary or trie
+	 * @param dictionary
+	 *            The name of what is loaded for the results
+	 */
+	public DictionaryLoadBenchmark(Configuration configuration, String dictionary) {
+		super("bogglewordmapper.setup");
+
+		this.configuration = configuration;
+
+		addParam("dictionary", dictionary);
+	}
+
+	@Override
+	public long run() throws Exception {
+		WordDictionary words = new WordDictionary(configuration);
+
+		sink += words.hashCode();
+
+		return 1;
+	}
+}
@@ -0,0 +1,132 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Measures the bytes BoggleMapper allocates on the heap for every record it expands. Uses the same -D parameters as
+ * BoggleDriver so the Bloom Filter and trie can both be measured.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class MapperAllocationBenchmark extends Configured implements Tool {
+	/** The number of passes over the records before measuring */
+	private static final int WARMUP_PASSES = 5;
+
+	/** The number of passes over the records that are measured */
+	private static final int MEASURED_PASSES = 20;
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length < 1 || args.length > 4) {
+			System.out.println("Usage: MapperAllocationBenchmark <bloomfile> [rollversion] [seed] [depth]");
+			return -1;
+		}
+
+		int version = args.length > 1 ? Integer.parseInt(args[1]) : BoggleDriver.ROLL_VERSION_DEFAULT;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		int depth = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		Configuration configuration = getConf();
+		configuration.set(BoggleDriver.BLOOM_PARAM, args[0]);
+
+		BoggleRoll roll = BoggleRoll.createRoll(version, new Random(seed));
+		configuration.set(BoggleDriver.ROLL_PARAM, roll.serialize());
+
+		ArrayList<BenchmarkMapContext.Record> records = createRecords(configuration, roll, depth);
+
+		BenchmarkMapContext benchmarkContext = new BenchmarkMapContext(configuration, false);
+		BoggleMapper mapper = new BoggleMapper();
+		mapper.setup(benchmarkContext.getContext());
+
+		// The mapper changes its input so every pass maps copies
+		RollGraphWritable value = new RollGraphWritable();
+
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long startBytes = 0;
+		long startTime = 0;
+		long startRecords = 0;
+
+		for (int pass = 0; pass < WARMUP_PASSES + MEASURED_PASSES; pass++) {
+			if (pass == WARMUP_PASSES) {
+				startRecords = benchmarkContext.getRecords();
+				startTime = System.nanoTime();
+				startBytes = threadBean.getThreadAllocatedBytes(threadId);
+			}
+
+			for (BenchmarkMapContext.Record record : records) {
+				value.set(record.value);
+
+				mapper.map(NullWritable.get(), value, benchmarkContext.getContext());
+			}
+		}
+
+		long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+		long elapsedTime = System.nanoTime() - startTime;
+		long recordsOut = benchmarkContext.getRecords() - startRecords;
+		long recordsIn = (long) records.size() * MEASURED_PASSES;
+
+		System.out.println("Roll:\n" + roll.toString());
+		System.out.println("Input records: " + recordsIn + " Output records: " + recordsOut);
+		System.out.println("Allocated bytes per input record: " + (allocatedBytes / recordsIn));
+		System.out.println("Allocated bytes per output record: " + (allocatedBytes / Math.max(recordsOut, 1)));
+		System.out.println("Nanoseconds per input record: " + (elapsedTime / recordsIn));
+
+		return 0;
+	}
+
+	/**
+	 * Creates the records for the first iterations of the roll
+	 * 
+	 * @param configuration
+	 *            The configuration for the mapper
+	 * @param roll
+	 *            The Boggle roll
+	 * @param depth
+	 *            The number of iterations to create records for
+	 * @return The records
+	 * @throws Exception
+	 */
+	static ArrayList<BenchmarkMapContext.Record> createRecords(Configuration configuration, BoggleRoll roll, int depth)
+			throws Exception {
+		ArrayList<BenchmarkMapContext.Record> frontier = new ArrayList<BenchmarkMapContext.Record>();
+
+		// Start with the same records the driver writes
+		for (int i = 0; i < roll.rollSize; i++) {
+			for (int j = 0; j < roll.rollSize; j++) {
+				frontier.add(new BenchmarkMapContext.Record(new RollGraphWritable(i * roll.rollSize + j, false)));
+			}
+		}
+
+		ArrayList<BenchmarkMapContext.Record> records = new ArrayList<BenchmarkMapContext.Record>();
+
+		BenchmarkMapContext benchmarkContext = new BenchmarkMapContext(configuration, true);
+		BoggleMapper mapper = new BoggleMapper();
+		mapper.setup(benchmarkContext.getContext());
+
+		for (int i = 0; i < depth; i++) {
+			for (BenchmarkMapContext.Record record : frontier) {
+				records.add(new BenchmarkMapContext.Record(new RollGraphWritable(record.value)));
+				mapper.map(NullWritable.get(), record.value, benchmarkContext.getContext());
+			}
+
+			frontier = benchmarkContext.takeFrontier();
+		}
+
+		return records;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int exitCode = ToolRunner.run(new Configuration(), new MapperAllocationBenchmark(), args);
+		System.exit(exitCode);
+	}
+}
@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+
+/**
+ * Benchmarks BoggleMapper expanding the records of the first iterations of a seeded roll. An operation is one input
+ * record mapped.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class MapperExpansionBenchmark extends Benchmark {
+	/** The configuration for the mapper */
+	private Configuration configuration;
+
+	/** The version of the roll */
+	private int version;
+
+	/** The seed for the roll */
+	private long seed;
+
+	/** The number of iterations to create records for */
+	private int depth;
+
+	/** The records to map */
+	private ArrayList<BenchmarkMapContext.Record> records;
+
+	/** The context the mapper writes to */
+	private BenchmarkMapContext benchmarkContext;
+
+	/** The mapper being benchmarked */
+	private BoggleMapper mapper;
+
+	/** The value passed to the mapper. The mapper changes its input so every pass maps copies. */
+	private RollGraphWritable value = new RollGraphWritable();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param configuration
+	 *            The configuration for the mapper with the Bloom Filter or trie
+	 * @param pruning
+	 *            The name of what prunes the nodes for the results
+	 * @param version
+	 *            The version of the roll
+	 * @param seed
+	 *            The seed for the roll
+	 * @param depth
+	 *            The number of iterations to create records for
+	 */
+	public MapperExpansionBenchmark(Configuration configuration, String pruning, int version, long seed, int depth) {
+		super("mapper.expansion");
+
+		this.configuration = configuration;
+		this.version = version;
+		this.seed = seed;
+		this.depth = depth;
+
+		addParam("rollversion", version);
+		addParam("pruning", pruning);
+		addParam("seed", seed);
+		addParam("depth", depth);
+	}
+
+	@Override
+	public void setup() throws Exception {
+		BoggleRoll roll = BoggleRoll.createRoll(version, new Random(seed));
+		configuration.set(BoggleDriver.ROLL_PARAM, roll.serialize());
+
+		addParam("size", roll.rollSize + "x" + roll.rollSize);
+
+		records = MapperAllocationBenchmark.createRecords(configuration, roll, depth);
+
+		addParam("records", records.size());
+
+		benchmarkContext = new BenchmarkMapContext(configuration, false);
+		mapper = new BoggleMapper();
+		mapper.setup(benchmarkContext.getContext());
+	}
+
+	@Override
+	public long run() throws Exception {
+		for (BenchmarkMapContext.Record record : records) {
+			value.set(record.value);
+
+			mapper.map(NullWritable.get(), value, benchmarkContext.getContext());
+		}
+
+		sink += benchmarkContext.getBytes();
+
+		return records.size();
+	}
+}
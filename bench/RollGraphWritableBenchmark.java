@@ -0,0 +1,82 @@
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * Benchmarks serializing or deserializing a RollGraphWritable. An operation is one write or readFields call.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class RollGraphWritableBenchmark extends Benchmark {
+	/** The number of operations for every run */
+	private static final int OPERATIONS = 1000;
+
+	/** The number of cells in the 12x12 roll the path is in */
+	private static final int CELLS = 144;
+
+	/** If readFields is benchmarked instead of write */
+	private boolean read;
+
+	/** The number of cells in the path */
+	private int length;
+
+	/** The writable to serialize or deserialize in to */
+	private RollGraphWritable writable = new RollGraphWritable();
+
+	/** The buffer written to */
+	private DataOutputBuffer output = new DataOutputBuffer();
+
+	/** The buffer read from */
+	private DataInputBuffer input = new DataInputBuffer();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param read
+	 *            If readFields is benchmarked instead of write
+	 * @param length
+	 *            The number of cells in the path
+	 */
+	public RollGraphWritableBenchmark(boolean read, int length) {
+		super(read ? "rollgraphwritable.readfields" : "rollgraphwritable.write");
+
+		this.read = read;
+		this.length = length;
+
+		addParam("length", length);
+	}
+
+	@Override
+	public void setup() throws Exception {
+		// Spread the cells over the whole roll so the visited bitset needs more than one long
+		writable = new RollGraphWritable(0, false);
+
+		for (int i = 1; i < length; i++) {
+			writable.addCell((i * 37) % CELLS);
+		}
+
+		output.reset();
+		writable.write(output);
+	}
+
+	@Override
+	public long run() throws Exception {
+		if (read) {
+			for (int i = 0; i < OPERATIONS; i++) {
+				input.reset(output.getData(), output.getLength());
+				writable.readFields(input);
+			}
+
+			sink += writable.getLastCell();
+		} else {
+			for (int i = 0; i < OPERATIONS; i++) {
+				output.reset();
+				writable.write(output);
+			}
+
+			sink += output.getLength();
+		}
+
+		return OPERATIONS;
+	}
+}
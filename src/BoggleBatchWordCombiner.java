@@ -0,0 +1,33 @@
+import java.io.IOException;
+import java.util.HashSet;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Removes the duplicate words for each roll in a batch before the shuffle.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleBatchWordCombiner extends Reducer<IntWritable, Text, IntWritable, Text> {
+	/** The word to emit */
+	private Text word = new Text();
+
+	@Override
+	public void reduce(IntWritable key, Iterable<Text> values, Context context) throws IOException,
+			InterruptedException {
+		// The same word can be found along different paths
+		HashSet<String> words = new HashSet<String>();
+
+		for (Text value : values) {
+			words.add(value.toString());
+		}
+
+		for (String uniqueWord : words) {
+			word.set(uniqueWord);
+			context.write(key, word);
+		}
+	}
+}
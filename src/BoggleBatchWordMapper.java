@@ -0,0 +1,59 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Finds the actual words for a batch of rolls and groups them by the roll they were found in.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleBatchWordMapper extends Mapper<NullWritable, RollGraphWritable, IntWritable, Text> {
+	/** All words from the dictionary */
+	private WordDictionary words;
+
+	/** The rolls to rebuild the characters from */
+	private RollLetters rolls;
+
+	/** The characters making up the node */
+	private Text word = new Text();
+
+	/** The minimum size for a word to be output */
+	private int minimumWordSize = 0;
+
+	/** The roll id to emit */
+	private IntWritable rollId = new IntWritable();
+
+	@Override
+	public void setup(Context context) throws IOException {
+		Configuration configuration = context.getConfiguration();
+
+		words = new WordDictionary(configuration);
+		rolls = new RollLetters(configuration);
+
+		// Get the minimum word size from the configuration
+		minimumWordSize = configuration.getInt(BoggleDriver.MINIMUM_WORD_SIZE_PARAM,
+				BoggleDriver.MINIMUM_WORD_SIZE_DEFAULT);
+	}
+
+	@Override
+	public void map(NullWritable key, RollGraphWritable value, Context context) throws IOException,
+			InterruptedException {
+		// The nodes don't carry their characters
+		rolls.getWord(value, word);
+
+		// See if the word is big enough to emit and actually appears in the dictionary
+		if (word.getLength() >= minimumWordSize && words.contains(word, value)) {
+			// Word appears, emit it for its roll
+			rollId.set(value.rollId);
+			context.write(rollId, word);
+
+			// A merged state stands for every path that was merged in to it
+			context.getCounter("boggle", "finalwords").increment(value.pathCount);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.util.TreeSet;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Outputs the number of unique words and the sorted list of words for each roll in a batch.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleBatchWordReducer extends Reducer<IntWritable, Text, IntWritable, Text> {
+	/** The count and words to emit */
+	private Text wordList = new Text();
+
+	@Override
+	public void reduce(IntWritable key, Iterable<Text> values, Context context) throws IOException,
+			InterruptedException {
+		// The same word can be found along different paths
+		TreeSet<String> words = new TreeSet<String>();
+
+		for (Text value : values) {
+			words.add(value.toString());
+		}
+
+		StringBuilder builder = new StringBuilder();
+		builder.append(words.size()).append("\t");
+
+		for (String word : words) {
+			builder.append(word).append(",");
+		}
+
+		wordList.set(builder.toString());
+		context.write(key, wordList);
+
+		context.getCounter("boggle", "uniquewords").increment(words.size());
+	}
+}
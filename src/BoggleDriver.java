@@ -1,21 +1,42 @@
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.mapred.LocalJobRunner;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskReport;
+import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
 
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Level;
@@ -33,12 +54,18 @@ public class BoggleDriver extends Configured implements Tool {
 	/** The parameter name for the bloom filter location */
 	public static final String BLOOM_PARAM = "bloompath";
 
+	/** The parameter name for the prefix trie location. The trie is used instead of the BloomFilter when set. */
+	public static final String TRIE_PARAM = "triepath";
+
 	/** The parameter name for the dictionary location */
 	public static final String DICTIONARY_PARAM = "dictionarypath";
 
 	/** The parameter name for the roll to be serialized */
 	public static final String ROLL_PARAM = "roll";
 
+	/** The parameter name for the batch of rolls to process instead of a single roll */
+	public static final String BATCH_PARAM = "batchpath";
+
 	/** The parameter name for the roll version */
 	public static final String ROLL_VERSION_PARAM = "rollversion";
 	
@@ -56,7 +83,184 @@ public class BoggleDriver extends Configured implements Tool {
 
 	/** The default value for using the BloomFilter */
 	public static final boolean ENABLE_BLOOM_DEFAULT = true;
-	
+
+	/** The parameter name to only write the newly expanded frontier to each iteration */
+	public static final String FRONTIER_ONLY_PARAM = "frontieronly";
+
+	/** The default value for only writing the frontier */
+	public static final boolean FRONTIER_ONLY_DEFAULT = false;
+
+	/** The parameter name to solve the roll in memory instead of running the MapReduce jobs */
+	public static final String LOCAL_SOLVER_PARAM = "localsolver";
+
+	/** The default value for solving the roll in memory */
+	public static final boolean LOCAL_SOLVER_DEFAULT = false;
+
+	/** The parameter name for the number of threads to solve in memory with. Defaults to the number of cores. */
+	public static final String LOCAL_SOLVER_THREADS_PARAM = "localsolverthreads";
+
+	/** The parameter name to ship the dictionary files to the tasks with the distributed cache */
+	public static final String DISTRIBUTED_CACHE_PARAM = "distributedcache";
+
+	/** The default value for using the distributed cache */
+	public static final boolean DISTRIBUTED_CACHE_DEFAULT = true;
+
+	/** The parameter name for the number of reducers in the final job */
+	public static final String FINAL_REDUCERS_PARAM = "finalreducers";
+
+	/** The default value for the number of reducers in the final job */
+	public static final int FINAL_REDUCERS_DEFAULT = 1;
+
+	/** The parameter name to output a representative path with every word */
+	public static final String REPRESENTATIVE_PATH_PARAM = "representativepath";
+
+	/** The default value for outputting a representative path */
+	public static final boolean REPRESENTATIVE_PATH_DEFAULT = true;
+
+	/** The parameter name to confirm the words in the traversal iterations instead of in the final job */
+	public static final String INLINE_WORDS_PARAM = "inlinewords";
+
+	/** The default value for confirming the words in the traversal iterations */
+	public static final boolean INLINE_WORDS_DEFAULT = false;
+
+	/** The parameter name for the largest frontier to expand in a single uber task instead of across the cluster */
+	public static final String UBER_FRONTIER_PARAM = "uberfrontier";
+
+	/** The default value for the largest frontier expanded in an uber task */
+	public static final long UBER_FRONTIER_DEFAULT = 10000;
+
+	/** The parameter name for the number of levels every node is expanded in memory by an iteration */
+	public static final String EXPANSION_DEPTH_PARAM = "expansiondepth";
+
+	/** The default value for the number of levels expanded by an iteration */
+	public static final int EXPANSION_DEPTH_DEFAULT = 1;
+
+	/** The parameter name for the most nodes expanded in memory for a single node in an iteration */
+	public static final String EXPANSION_BUDGET_PARAM = "expansionbudget";
+
+	/** The default value for the most nodes expanded in memory for a single node */
+	public static final int EXPANSION_BUDGET_DEFAULT = 10000;
+
+	/** The parameter name for the number of nodes every map task in an iteration should read */
+	public static final String SPLIT_RECORDS_PARAM = "splitrecords";
+
+	/** The default value for the number of nodes every map task should read */
+	public static final long SPLIT_RECORDS_DEFAULT = 100000;
+
+	/** The parameter name for the largest frontier to expand in the driver's process instead of submitting a job */
+	public static final String LOCAL_FRONTIER_PARAM = "localfrontier";
+
+	/** The default value for the largest frontier expanded in the driver's process */
+	public static final long LOCAL_FRONTIER_DEFAULT = 1000;
+
+	/** The parameter name for the codec class for the roll file. The roll file isn't compressed if unset. */
+	public static final String ROLL_CODEC_PARAM = "rollcodec";
+
+	/** The parameter name for the codec class to compress the iterations' output with */
+	public static final String ITERATION_CODEC_PARAM = "iterationcodec";
+
+	/** The default value for the codec class to compress the iterations' output with */
+	public static final Class<? extends CompressionCodec> ITERATION_CODEC_DEFAULT = SnappyCodec.class;
+
+	/** The parameter name for the SequenceFile compression type of the iterations' output. NONE turns it off. */
+	public static final String ITERATION_COMPRESSION_TYPE_PARAM = "iterationcompressiontype";
+
+	/** The default value for the SequenceFile compression type of the iterations' output */
+	public static final String ITERATION_COMPRESSION_TYPE_DEFAULT = CompressionType.BLOCK.name();
+
+	/** The parameter name for the bytes of nodes buffered for every compressed block of the iterations' output */
+	public static final String ITERATION_BLOCK_SIZE_PARAM = "iterationblocksize";
+
+	/** The default value for the bytes of nodes buffered for every compressed block */
+	public static final int ITERATION_BLOCK_SIZE_DEFAULT = 1000000;
+
+	/** The parameter name for the codec class to compress the words with. The words aren't compressed if unset. */
+	public static final String FINAL_CODEC_PARAM = "finalcodec";
+
+	/** The parameter name to delete every iteration's directory as soon as the next iteration has read it */
+	public static final String DELETE_INTERMEDIATE_PARAM = "deleteintermediate";
+
+	/** The default value for deleting the iterations' directories */
+	public static final boolean DELETE_INTERMEDIATE_DEFAULT = false;
+
+	/** The parameter name to merge the frontier nodes with the same state between iterations */
+	public static final String CANONICAL_STATES_PARAM = "canonicalstates";
+
+	/** The default value for merging the frontier nodes with the same state */
+	public static final boolean CANONICAL_STATES_DEFAULT = false;
+
+	/** The parameter name to score the words after they're found */
+	public static final String SCORE_PARAM = "score";
+
+	/** The default value for scoring the words */
+	public static final boolean SCORE_DEFAULT = false;
+
+	/** The parameter name for the number of best scoring words to output for every roll */
+	public static final String TOP_WORDS_PARAM = "topwords";
+
+	/** The default value for the number of best scoring words */
+	public static final int TOP_WORDS_DEFAULT = 10;
+
+	/** The directory in the output directory the scores are written to */
+	public static final String SCORES_DIRECTORY = "scores";
+
+	/** The parameter name to write a report with the metrics for every iteration next to the output directory */
+	public static final String METRICS_PARAM = "metrics";
+
+	/** The default value for writing the metrics report */
+	public static final boolean METRICS_DEFAULT = false;
+
+	/** The parameter name for the path to the side file with a big roll. Set by the driver instead of the roll. */
+	public static final String BOARD_PARAM = "boardpath";
+
+	/** The parameter name for the smallest roll size that is written to a side file instead of the configuration */
+	public static final String BOARD_FILE_SIZE_PARAM = "boardfilesize";
+
+	/** The default value for the smallest roll size written to a side file */
+	public static final int BOARD_FILE_SIZE_DEFAULT = 32;
+
+	/** The parameter name for the number of rows and columns in the tiles of the roll the frontier is grouped by */
+	public static final String TILE_SIZE_PARAM = "tilesize";
+
+	/** The default value for the tile size. The frontier isn't grouped by tile. */
+	public static final int TILE_SIZE_DEFAULT = 0;
+
+	/** The parameter name for the number of workers in the solving service. Defaults to the number of cores. */
+	public static final String SERVICE_THREADS_PARAM = "servicethreads";
+
+	/** The parameter name for the milliseconds the solving service waits between looks at its input directory */
+	public static final String SERVICE_POLL_MILLIS_PARAM = "servicepollmillis";
+
+	/** The default value for the milliseconds between looks at the input directory */
+	public static final long SERVICE_POLL_MILLIS_DEFAULT = 1000;
+
+	/** The parameter name for the number of rolls the solving service solves between latency reports */
+	public static final String SERVICE_REPORT_ROLLS_PARAM = "servicereportrolls";
+
+	/** The default value for the number of rolls between latency reports */
+	public static final int SERVICE_REPORT_ROLLS_DEFAULT = 100;
+
+	/** The parameter name for the number of rolls the solving service solves before it stops. 0 never stops. */
+	public static final String SERVICE_MAX_ROLLS_PARAM = "servicemaxrolls";
+
+	/** The default value for the number of rolls before the solving service stops */
+	public static final int SERVICE_MAX_ROLLS_DEFAULT = 0;
+
+	/** The parameter name for the local directory with the cache of the words found in rolls. Unset turns it off. */
+	public static final String CACHE_PARAM = "cachepath";
+
+	/** The parameter name for the most bytes the cached words can take before the least recently used are evicted */
+	public static final String CACHE_MAX_BYTES_PARAM = "cachemaxbytes";
+
+	/** The default value for the most bytes the cached words can take */
+	public static final long CACHE_MAX_BYTES_DEFAULT = 100000000;
+
+	/** The named output that finished nodes are written to when only writing the frontier */
+	public static final String FINAL_NAMED_OUTPUT = "final";
+
+	/** The named output that words are written to when they are confirmed in the traversal iterations */
+	public static final String WORDS_NAMED_OUTPUT = "words";
+
 	@Override
 	public int run(String[] args) throws Exception {
 		if (args.length != 4) {
@@ -79,7 +283,13 @@ public class BoggleDriver extends Configured implements Tool {
 
 		FileSystem fileSystem = FileSystem.get(configuration);
 
-		if (!fileSystem.exists(new Path(bloomPath))) {
+		if (configuration.get(TRIE_PARAM) != null) {
+			if (!fileSystem.exists(new Path(configuration.get(TRIE_PARAM)))) {
+				// Verify that the trie file exists
+				System.out.println("Could not find trie file");
+				return -1;
+			}
+		} else if (!fileSystem.exists(new Path(bloomPath))) {
 			// Verify that Bloom file exists
 			System.out.println("Could not find bloom file");
 			return -1;
@@ -95,12 +305,204 @@ public class BoggleDriver extends Configured implements Tool {
 		configuration.set(DICTIONARY_PARAM, dictionary);
 		configuration.setBooleanIfUnset(ENABLE_BLOOM_PARAM, ENABLE_BLOOM_DEFAULT);
 
-		BoggleRoll roll = BoggleRoll.createRoll(configuration.getInt(ROLL_VERSION_PARAM, ROLL_VERSION_DEFAULT));
-		configuration.set(ROLL_PARAM, roll.serialize());
+		if (configuration.getBoolean(CANONICAL_STATES_PARAM, CANONICAL_STATES_DEFAULT)) {
+			// Only the frontier goes through the reducers. The finished nodes already carry their path counts.
+			configuration.setBoolean(FRONTIER_ONLY_PARAM, true);
+		}
+
+		RollCache cache = null;
+
+		if (configuration.get(CACHE_PARAM) != null) {
+			if (configuration.getBoolean(INLINE_WORDS_PARAM, INLINE_WORDS_DEFAULT)
+					|| configuration.get(FINAL_CODEC_PARAM) != null) {
+				// The cache has the lines of the final job's output
+				logger.info("The result cache is only used for the final job's uncompressed output.  "
+						+ "Turn off inlinewords and finalcodec to use it.");
+			} else {
+				cache = new RollCache(configuration, fileSystem, dictionary);
+			}
+		}
+
+		ArrayList<BoggleRoll> rolls;
+
+		// The whole batch and the words for every roll in it when the result cache is used
+		ArrayList<BoggleRoll> batchRolls = null;
+		List<List<String>> batchLines = null;
+
+		// The directory the final job writes to. Only the rolls that missed the cache are solved by the jobs.
+		String wordsOutput = output;
+
+		if (configuration.get(BATCH_PARAM) != null) {
+			// Process every roll in the batch with the same jobs
+			rolls = BoggleRollBatch.read(configuration, new Path(configuration.get(BATCH_PARAM)));
+
+			if (configuration.getBoolean(LOCAL_SOLVER_PARAM, LOCAL_SOLVER_DEFAULT)) {
+				System.out.println("The local solver can't be used with a batch of rolls");
+				return -1;
+			}
+
+			if (cache != null) {
+				batchRolls = rolls;
+				batchLines = new ArrayList<List<String>>();
+				rolls = new ArrayList<BoggleRoll>();
+
+				for (BoggleRoll roll : batchRolls) {
+					List<String> lines = cache.get(roll);
+					batchLines.add(lines);
+
+					if (lines == null) {
+						rolls.add(roll);
+					}
+				}
+
+				logger.info("Found " + (batchRolls.size() - rolls.size()) + " of the " + batchRolls.size()
+						+ " rolls in the result cache.");
+
+				if (rolls.isEmpty()) {
+					// No jobs are needed
+					writeBatchLines(fileSystem, new Path(output), batchLines);
+					cache.close();
+
+					return finishCachedWords(output, configuration);
+				} else if (rolls.size() < batchRolls.size()) {
+					// Only the rolls that missed go through the jobs with new roll ids
+					Path missesPath = new Path(input + "-misses");
+					BoggleRollBatch.write(configuration, missesPath, rolls);
+					configuration.set(BATCH_PARAM, missesPath.toString());
+
+					wordsOutput = output + "-misses";
+				}
+			}
+		} else {
+			BoggleRoll roll = BoggleRoll.createRoll(configuration.getInt(ROLL_VERSION_PARAM, ROLL_VERSION_DEFAULT));
+
+			if (cache != null) {
+				List<String> lines = cache.get(roll);
+
+				if (lines != null) {
+					// Rotated and reflected rolls have the same words so they're found here too
+					writeLines(fileSystem, new Path(output), lines);
+
+					logger.info("Found " + lines.size() + " unique words in the result cache.  With roll:\n" + roll);
+					cache.close();
+
+					return finishCachedWords(output, configuration);
+				}
+			}
+
+			if (configuration.getBoolean(LOCAL_SOLVER_PARAM, LOCAL_SOLVER_DEFAULT)) {
+				// Small rolls are faster to solve in memory than to start all of the jobs
+				new BoggleLocalSolver(configuration, roll).solve(configuration, output);
+
+				if (cache != null) {
+					cache.put(roll, readLines(fileSystem, new Path(output)));
+					cache.close();
+				}
+
+				if (configuration.getBoolean(SCORE_PARAM, SCORE_DEFAULT)) {
+					return scoreWords(output, configuration) ? 0 : 1;
+				}
+
+				return 0;
+			}
+
+			if (roll.rollSize >= configuration.getInt(BOARD_FILE_SIZE_PARAM, BOARD_FILE_SIZE_DEFAULT)) {
+				// Every task's configuration would carry the whole roll. The tasks read the side file instead.
+				Path boardPath = new Path(input + "-board");
+				writeBoardFile(fileSystem, boardPath, roll);
+				configuration.set(BOARD_PARAM, boardPath.toString());
+
+				logger.info("Wrote the " + roll.rollSize + "x" + roll.rollSize + " roll to " + boardPath);
+			} else {
+				configuration.set(ROLL_PARAM, roll.serialize());
+			}
+
+			rolls = new ArrayList<BoggleRoll>();
+			rolls.add(roll);
+		}
+
+		if (configuration.getInt(TILE_SIZE_PARAM, TILE_SIZE_DEFAULT) > 0) {
+			if (configuration.get(BATCH_PARAM) != null
+					|| configuration.getBoolean(CANONICAL_STATES_PARAM, CANONICAL_STATES_DEFAULT)) {
+				// The batch's rolls are too small to cut up and the merged states are already grouped by their key
+				logger.info("The frontier is only grouped by tile for a single roll without canonicalstates.");
+				configuration.setInt(TILE_SIZE_PARAM, 0);
+			} else {
+				// Only the frontier goes through the reducers like with canonicalstates
+				configuration.setBoolean(FRONTIER_ONLY_PARAM, true);
+			}
+		}
+
+		if (configuration.get(TRIE_PARAM) == null && !CompiledDictionary.isCompiled(fileSystem, new Path(dictionary))) {
+			// Compile the dictionary once here instead of parsing it in every final task
+			Path compiledDictionary = new Path(input + "-dictionary");
+			int words = DictionaryCompiler.compile(fileSystem, new Path(dictionary), compiledDictionary);
+			configuration.set(DICTIONARY_PARAM, compiledDictionary.toString());
+
+			logger.info("Compiled " + words + " words from the dictionary to " + compiledDictionary);
+		}
+
+		TraversalMetrics metrics = null;
+
+		if (configuration.getBoolean(METRICS_PARAM, METRICS_DEFAULT)) {
+			metrics = new TraversalMetrics();
+		}
+
+		int iteration = traverseGraph(input, configuration, fileSystem, rolls, metrics);
+
+		if (metrics != null) {
+			// The report goes next to the output directory so it doesn't look like part of the words
+			Path jsonPath = new Path(output + "-metrics.json");
+			metrics.write(fileSystem, jsonPath, new Path(output + "-metrics.csv"));
+
+			logger.info("Wrote the metrics for every iteration to " + jsonPath);
+		}
+
+		boolean success;
+
+		if (configuration.getBoolean(INLINE_WORDS_PARAM, INLINE_WORDS_DEFAULT)) {
+			// The words were already written by the iterations
+			collectWords(input, output, fileSystem, iteration);
+			success = true;
+		} else {
+			success = findWords(input, wordsOutput, configuration, iteration, rolls);
+		}
+
+		if (success && cache != null) {
+			if (batchRolls != null) {
+				cacheBatchWords(fileSystem, wordsOutput, output, cache, batchRolls, batchLines);
+			} else {
+				cache.put(rolls.get(0), readLines(fileSystem, new Path(output)));
+			}
+
+			cache.close();
+		}
+
+		if (success && configuration.getBoolean(SCORE_PARAM, SCORE_DEFAULT)) {
+			success = scoreWords(output, configuration);
+		}
+
+		if (success && configuration.getBoolean(DELETE_INTERMEDIATE_PARAM, DELETE_INTERMEDIATE_DEFAULT)) {
+			// Nothing reads the iterations anymore
+			for (int i = 0; i <= iteration + 1; i++) {
+				fileSystem.delete(getPath(input, i), true);
+			}
+
+			fileSystem.delete(new Path(input + "-partitions"), false);
+			fileSystem.delete(new Path(input + "-tiles"), false);
+			fileSystem.delete(new Path(input + "-misses"), false);
 
-		int iteration = traverseGraph(input, configuration, fileSystem, roll);
+			if (configuration.get(BOARD_PARAM) != null) {
+				fileSystem.delete(new Path(configuration.get(BOARD_PARAM)), false);
+			}
 
-		boolean success = findWords(input, output, configuration, iteration, roll);
+			if (!dictionary.equals(configuration.get(DICTIONARY_PARAM))) {
+				// Only delete the dictionary if it was compiled here
+				fileSystem.delete(new Path(configuration.get(DICTIONARY_PARAM)), false);
+			}
+
+			logger.info("Deleted the intermediate files for " + (iteration + 1) + " iterations.");
+		}
 
 		return success ? 0 : 1;
 	}
@@ -114,24 +516,53 @@ public class BoggleDriver extends Configured implements Tool {
 	 *            The configuration object
 	 * @param fileSystem
 	 *            The filesystem object
-	 * @param roll
-	 *            The Boggle roll to process
+	 * @param rolls
+	 *            The Boggle rolls to process
+	 * @param metrics
+	 *            The metrics to add every iteration to or null if they aren't collected
 	 * @return The number of iterations it took to traverse the graph
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @throws ClassNotFoundException
 	 */
-	private int traverseGraph(String input, Configuration configuration, FileSystem fileSystem, BoggleRoll roll)
-			throws IOException, InterruptedException, ClassNotFoundException {
+	private int traverseGraph(String input, Configuration configuration, FileSystem fileSystem,
+			ArrayList<BoggleRoll> rolls, TraversalMetrics metrics) throws IOException, InterruptedException,
+			ClassNotFoundException {
 		int iteration = 0;
 
 		int maxiterations = configuration.getInt(MAX_ITERATIONS_PARAM, MAX_ITERATIONS_DEFAULT);
+		boolean inlineWords = configuration.getBoolean(INLINE_WORDS_PARAM, INLINE_WORDS_DEFAULT);
+
+		// Finished nodes aren't written anywhere when the words are confirmed inline
+		boolean frontierOnly = configuration.getBoolean(FRONTIER_ONLY_PARAM, FRONTIER_ONLY_DEFAULT) || inlineWords;
+		boolean deleteIntermediate = configuration.getBoolean(DELETE_INTERMEDIATE_PARAM, DELETE_INTERMEDIATE_DEFAULT);
+		boolean canonicalStates = configuration.getBoolean(CANONICAL_STATES_PARAM, CANONICAL_STATES_DEFAULT);
+		int tileSize = configuration.getInt(TILE_SIZE_PARAM, TILE_SIZE_DEFAULT);
+
+		CompressionType compressionType = CompressionType.valueOf(configuration.get(
+				ITERATION_COMPRESSION_TYPE_PARAM, ITERATION_COMPRESSION_TYPE_DEFAULT).toUpperCase());
+
+		writeRollFile(input, fileSystem, configuration, rolls, iteration);
+
+		// The biggest roll takes the most iterations to traverse
+		int maxRollSize = getMaxRollSize(rolls);
+
+		long localFrontier = configuration.getLong(LOCAL_FRONTIER_PARAM, LOCAL_FRONTIER_DEFAULT);
+		long uberFrontier = configuration.getLong(UBER_FRONTIER_PARAM, UBER_FRONTIER_DEFAULT);
 
-		writeRollFile(input, fileSystem, configuration, roll, iteration);
+		// The first iteration expands every cell
+		long frontierCount = getCellCount(rolls);
+
+		// The number of nodes the iteration reads
+		long inputRecords = frontierCount;
+		long splitRecords = configuration.getLong(SPLIT_RECORDS_PARAM, SPLIT_RECORDS_DEFAULT);
+
+		// The bytes the last iteration wrote for every byte of nodes before compression
+		double compressionRatio = 1;
 
-		long previousWordCount = 0;
 		long bloomSavings = 0;
-		
+		long finalWordCount = 0;
+
 		logger.info("Starting graph traversal.");
 
 		// Traverse the graph until it is completely traversed
@@ -140,45 +571,225 @@ public class BoggleDriver extends Configured implements Tool {
 			job.setJarByClass(BoggleDriver.class);
 			job.setJobName("Boggle Graph Iteration " + iteration);
 
-			FileInputFormat.setInputPaths(job, getPath(input, iteration));
-			FileOutputFormat.setOutputPath(job, getPath(input, iteration + 1));
+			String runner = "cluster";
+
+			if (frontierCount <= localFrontier) {
+				// Setting up and committing a cluster job takes longer than expanding a tiny frontier. The local
+				// runner reads and writes the same files so the next iteration can go back to the cluster.
+				runner = "local";
+				job.getConfiguration().set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
+				LocalJobRunner.setLocalMaxRunningMaps(job, Runtime.getRuntime().availableProcessors());
+
+				logger.info("Running iteration " + iteration + " in process for a frontier of " + frontierCount
+						+ " nodes.");
+			}
+
+			Path frontierPath = getFrontierPath(input, iteration, frontierOnly);
+			FileInputFormat.setInputPaths(job, frontierPath);
+
+			long bytesRead = getInputBytes(fileSystem, frontierPath);
+
+			if (inputRecords > splitRecords) {
+				// Split the nodes evenly instead of inheriting the last iteration's lopsided files. The nodes are
+				// about the same size so bytes are split in proportion to nodes.
+				long splits = (inputRecords + splitRecords - 1) / splitRecords;
+				long splitSize = Math.max(1, bytesRead / splits);
+
+				boolean blockCompressed = iteration == 0 ? configuration.get(ROLL_CODEC_PARAM) != null
+						: compressionType == CompressionType.BLOCK;
+
+				if (blockCompressed) {
+					// A split can only start at a sync marker and a BLOCK compressed file only has one for every
+					// compressed block. A split smaller than a block is empty, so the nodes can't be split any
+					// finer than a block.
+					int blockSize = iteration == 0 ? configuration.getInt("io.seqfile.compress.blocksize", 1000000)
+							: configuration.getInt(ITERATION_BLOCK_SIZE_PARAM, ITERATION_BLOCK_SIZE_DEFAULT);
+					long blockBytes = (long) (blockSize * compressionRatio);
+
+					if (splitSize < blockBytes) {
+						logger.info("Could not split the " + inputRecords + " nodes of iteration " + iteration
+								+ " in to " + splits + " splits of " + splitSize + " bytes.  A compressed block is "
+								+ "about " + blockBytes + " bytes, so the splits are a block each.  Lower "
+								+ "iterationblocksize to split the nodes more evenly.");
+
+						splitSize = blockBytes;
+					}
+				}
+
+				FileInputFormat.setMaxInputSplitSize(job, splitSize);
+			}
+			Path outputPath = getPath(input, iteration + 1);
+			FileOutputFormat.setOutputPath(job, outputPath);
 
 			job.setInputFormatClass(SequenceFileInputFormat.class);
 			job.setOutputFormatClass(SequenceFileOutputFormat.class);
 
-			FileOutputFormat.setOutputCompressorClass(job, SnappyCodec.class);
-			SequenceFileOutputFormat.setOutputCompressionType(job, CompressionType.BLOCK);
+			if (compressionType == CompressionType.NONE) {
+				FileOutputFormat.setCompressOutput(job, false);
+			} else {
+				FileOutputFormat.setOutputCompressorClass(job,
+						configuration.getClass(ITERATION_CODEC_PARAM, ITERATION_CODEC_DEFAULT, CompressionCodec.class));
+				SequenceFileOutputFormat.setOutputCompressionType(job, compressionType);
 
-			job.setNumReduceTasks(0);
+				// Bigger blocks compress better but every task buffers a whole block before writing it
+				job.getConfiguration().setInt("io.seqfile.compress.blocksize",
+						configuration.getInt(ITERATION_BLOCK_SIZE_PARAM, ITERATION_BLOCK_SIZE_DEFAULT));
+			}
 
 			job.setMapperClass(BoggleMapper.class);
 
-			job.setOutputKeyClass(Text.class);
+			if (canonicalStates) {
+				// Merge the frontier nodes with the same state so their children are only expanded once. The
+				// reducers are sized from the nodes the iteration reads like the splits are.
+				job.setMapOutputKeyClass(BytesWritable.class);
+				job.setCombinerClass(BoggleStateCombiner.class);
+				job.setReducerClass(BoggleStateReducer.class);
+				job.setNumReduceTasks((int) Math.max(1, (frontierCount + splitRecords - 1) / splitRecords));
+			} else if (tileSize > 0) {
+				// Group the frontier nodes by the tile their last cell is in. Every reducer gets a range of tiles, so
+				// every split of the next iteration covers a band of the roll and its neighbors.
+				int tiles = rolls.get(0).getTileCount(tileSize);
+				int reducers = (int) Math.min(tiles, Math.max(1, (frontierCount + splitRecords - 1) / splitRecords));
+
+				job.setMapOutputKeyClass(IntWritable.class);
+				job.setReducerClass(BoggleTileReducer.class);
+				job.setNumReduceTasks(reducers);
+
+				if (reducers > 1) {
+					Path partitionFile = new Path(input + "-tiles");
+					TotalOrderPartitioner.setPartitionFile(job.getConfiguration(), partitionFile);
+					job.setPartitionerClass(TotalOrderPartitioner.class);
+
+					writeRangePartitionFile(job.getConfiguration(), partitionFile, tiles, reducers);
+				}
+			} else {
+				job.setNumReduceTasks(0);
+			}
+
+			if (!runner.equals("local") && frontierCount <= uberFrontier) {
+				// Scheduling the tasks across the cluster takes longer than expanding a small frontier. The
+				// ApplicationMaster quietly runs the job normally if its tasks don't fit in an uber task.
+				Configuration jobConfiguration = job.getConfiguration();
+				int splits = new SequenceFileInputFormat<NullWritable, RollGraphWritable>().getSplits(job).size();
+				int maxMaps = jobConfiguration.getInt(MRJobConfig.JOB_UBERTASK_MAXMAPS, 9);
+				int maxReduces = jobConfiguration.getInt(MRJobConfig.JOB_UBERTASK_MAXREDUCES, 1);
+				long maxBytes = jobConfiguration.getLong(MRJobConfig.JOB_UBERTASK_MAXBYTES,
+						fileSystem.getDefaultBlockSize(frontierPath));
+
+				if (splits <= maxMaps && job.getNumReduceTasks() <= maxReduces && bytesRead <= maxBytes) {
+					runner = "uber";
+					jobConfiguration.setBoolean(MRJobConfig.JOB_UBERTASK_ENABLE, true);
+
+					logger.info("Running iteration " + iteration + " as an uber task for a frontier of "
+							+ frontierCount + " nodes.");
+				} else {
+					logger.info("Not running iteration " + iteration + " as an uber task for a frontier of "
+							+ frontierCount + " nodes.  It has " + splits + " splits, " + job.getNumReduceTasks()
+							+ " reducers and " + bytesRead + " bytes but an uber task takes at most " + maxMaps
+							+ " splits, " + maxReduces + " reducers and " + maxBytes + " bytes.");
+				}
+			}
+
+			// Big rolls are read from their side file
+			DistributedCacheFiles.addCacheFiles(job, BOARD_PARAM);
+
+			// The mapper only loads the trie if there is one
+			if (configuration.get(TRIE_PARAM) != null) {
+				DistributedCacheFiles.addCacheFiles(job, TRIE_PARAM);
+			} else if (configuration.getBoolean(ENABLE_BLOOM_PARAM, ENABLE_BLOOM_DEFAULT)) {
+				DistributedCacheFiles.addCacheFiles(job, BLOOM_PARAM);
+			}
+
+			if (inlineWords) {
+				// The mapper checks the words against the dictionary unless the trie already knows them
+				DistributedCacheFiles.addCacheFiles(job, configuration.get(TRIE_PARAM) != null ? TRIE_PARAM
+						: DICTIONARY_PARAM);
+
+				if (configuration.get(BATCH_PARAM) != null) {
+					MultipleOutputs.addNamedOutput(job, WORDS_NAMED_OUTPUT, WordsOutputFormat.class,
+							IntWritable.class, Text.class);
+				} else {
+					MultipleOutputs.addNamedOutput(job, WORDS_NAMED_OUTPUT, WordsOutputFormat.class, Text.class,
+							WordPathsWritable.class);
+				}
+			}
+
+			job.setOutputKeyClass(NullWritable.class);
 			job.setOutputValueClass(RollGraphWritable.class);
 
+			if (frontierOnly && !inlineWords) {
+				// Finished nodes go to a side output so the next iteration only reads the frontier
+				MultipleOutputs.addNamedOutput(job, FINAL_NAMED_OUTPUT, SequenceFileOutputFormat.class,
+						NullWritable.class, RollGraphWritable.class);
+			}
+
+			long startTime = System.currentTimeMillis();
 			boolean success = job.waitForCompletion(true);
+			long elapsedMillis = System.currentTimeMillis() - startTime;
 
 			if (!success) {
 				throw new RuntimeException("Job did not return sucessfully.  Check the logs for info.");
 			}
 
+			long frontierIn = frontierCount;
 			long currentWordCount = job.getCounters().findCounter("boggle", "words").getValue();
+			inputRecords = job.getCounters().findCounter(TaskCounter.MAP_OUTPUT_RECORDS).getValue();
+
+			logTaskSkew(job, iteration);
+			frontierCount = job.getCounters().findCounter("boggle", "frontier").getValue();
+
+			if (canonicalStates) {
+				// The next iteration only reads the merged states
+				long mergedStates = job.getCounters().findCounter("boggle", "mergedstates").getValue();
+				inputRecords = job.getCounters().findCounter(TaskCounter.REDUCE_OUTPUT_RECORDS).getValue();
+
+				logger.info("Iteration " + iteration + " merged " + mergedStates + " equivalent nodes in to "
+						+ inputRecords + " states.");
+
+				frontierCount = inputRecords;
+			}
 			bloomSavings += job.getCounters().findCounter("boggle", "bloom").getValue();
+			bloomSavings += job.getCounters().findCounter("boggle", "trie").getValue();
+			bloomSavings += job.getCounters().findCounter("boggle", "dictionary").getValue();
+			finalWordCount += job.getCounters().findCounter("boggle", "finalwords").getValue();
+
+			long bytesWritten = logIterationBytes(job, fileSystem, outputPath, iteration, bytesRead);
+			long serializedBytes = job.getCounters().findCounter("boggle", "serializedbytes").getValue();
+
+			if (serializedBytes > 0 && bytesWritten > 0) {
+				// The next iteration's blocks are about as compressed as everything this iteration wrote
+				compressionRatio = (double) bytesWritten / serializedBytes;
+			}
+
+			if (metrics != null) {
+				metrics.addIteration(job, iteration, runner, frontierIn, frontierCount, bytesRead, bytesWritten,
+						elapsedMillis);
+			}
+
+			if (deleteIntermediate) {
+				// The next iterations and the final job don't read this iteration's frontier again
+				deleteFrontier(fileSystem, frontierPath);
+			}
 
 			logger.info("Traversed graph for " + iteration + " iterations.  Found " + currentWordCount
-					+ " potential words.  Bloom prevented " + bloomSavings + " traversals so far.");
+					+ " potential words and expanded " + frontierCount + " new nodes.  Bloom prevented "
+					+ bloomSavings + " traversals so far.");
 
 			// Check to see if the entire graph has been traversed, the entire roll has been iterated,
 			// or the maximum number of iterations have happened.
-			if (currentWordCount == previousWordCount
-					|| iteration == (roll.rollSize * roll.rollSize) || iteration == maxiterations) {
+			// The graph is traversed once an iteration doesn't expand anything new. There's no need to run another
+			// iteration that only copies the finished nodes.
+			if (frontierCount == 0 || iteration == (maxRollSize * maxRollSize) || iteration == maxiterations) {
 				logger.info("Finished traversing graph after " + iteration + " iterations.  Found " + currentWordCount
 						+ " potential words.  Bloom prevented " + bloomSavings + " traversals.");
+
+				if (inlineWords) {
+					logger.info("Found " + finalWordCount + " total words while traversing the graph.");
+				}
+
 				break;
 			}
 
-			previousWordCount = currentWordCount;
-
 			iteration++;
 		} while (true);
 
@@ -196,83 +807,698 @@ public class BoggleDriver extends Configured implements Tool {
 	 *            The configuration object
 	 * @param iteration
 	 *            The number of iterations it took to traverse the graph
-	 * @param roll
-	 *            The Boggle roll
+	 * @param rolls
+	 *            The Boggle rolls
 	 * @return If the job was successful
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @throws ClassNotFoundException
 	 */
-	private boolean findWords(String input, String output, Configuration configuration, int iteration, BoggleRoll roll)
-			throws IOException, InterruptedException, ClassNotFoundException {
+	private boolean findWords(String input, String output, Configuration configuration, int iteration,
+			ArrayList<BoggleRoll> rolls) throws IOException, InterruptedException, ClassNotFoundException {
 		Job job = new Job(configuration);
 		job.setJarByClass(BoggleDriver.class);
 		job.setJobName("Boggle Graph Final");
 
-		FileInputFormat.setInputPaths(job, getPath(input, iteration));
+		if (configuration.getBoolean(FRONTIER_ONLY_PARAM, FRONTIER_ONLY_DEFAULT)) {
+			// The finished nodes are spread across the side outputs of every iteration. Any frontier left
+			// over from stopping at the maximum iterations is still a potential word too.
+			FileSystem fileSystem = FileSystem.get(configuration);
+
+			for (int i = 1; i <= iteration + 1; i++) {
+				addInputPathIfExists(job, fileSystem, new Path(getPath(input, i), FINAL_NAMED_OUTPUT + "-*"));
+			}
+
+			addInputPathIfExists(job, fileSystem, getFrontierPath(input, iteration + 1, true));
+		} else {
+			// The last iteration's output has every node
+			FileInputFormat.setInputPaths(job, getPath(input, iteration + 1));
+		}
 		FileOutputFormat.setOutputPath(job, new Path(output));
 
 		job.setInputFormatClass(SequenceFileInputFormat.class);
 
-		job.setNumReduceTasks(1);
+		if (configuration.get(FINAL_CODEC_PARAM) != null) {
+			FileOutputFormat.setOutputCompressorClass(job,
+					configuration.getClass(FINAL_CODEC_PARAM, null, CompressionCodec.class));
+		}
+
+		int reducers = configuration.getInt(FINAL_REDUCERS_PARAM, FINAL_REDUCERS_DEFAULT);
+		job.setNumReduceTasks(reducers);
+
+		// The dictionary is only read if there isn't a trie
+		DistributedCacheFiles.addCacheFiles(job, configuration.get(TRIE_PARAM) != null ? TRIE_PARAM
+				: DICTIONARY_PARAM);
+		DistributedCacheFiles.addCacheFiles(job, BOARD_PARAM);
+
+		boolean batch = configuration.get(BATCH_PARAM) != null;
 
-		job.setMapperClass(BoggleWordMapper.class);
+		if (batch) {
+			// Group the words by roll
+			job.setMapperClass(BoggleBatchWordMapper.class);
+			job.setCombinerClass(BoggleBatchWordCombiner.class);
+			job.setReducerClass(BoggleBatchWordReducer.class);
 
-		job.setOutputKeyClass(Text.class);
-		job.setOutputValueClass(RollGraphWritable.class);
+			job.setOutputKeyClass(IntWritable.class);
+			job.setOutputValueClass(Text.class);
+		} else {
+			// Group the paths by word
+			job.setMapperClass(BoggleWordMapper.class);
+			job.setCombinerClass(BoggleWordCombiner.class);
+			job.setReducerClass(BoggleWordReducer.class);
+
+			job.setOutputKeyClass(Text.class);
+			job.setOutputValueClass(WordPathsWritable.class);
+		}
+
+		if (reducers > 1 && (!batch || rolls.size() > 1)) {
+			// Split the keys in to ranges so the reducers' output is still sorted as a whole
+			Path partitionFile = new Path(input + "-partitions");
+			TotalOrderPartitioner.setPartitionFile(job.getConfiguration(), partitionFile);
+			job.setPartitionerClass(TotalOrderPartitioner.class);
+
+			if (batch) {
+				// Every reducer needs at least one roll
+				reducers = Math.min(reducers, rolls.size());
+				job.setNumReduceTasks(reducers);
+
+				writeRangePartitionFile(job.getConfiguration(), partitionFile, rolls.size(), reducers);
+			} else {
+				// The nodes going in to the final job don't have their characters so split by the dictionary
+				reducers = writeWordPartitionFile(job.getConfiguration(), partitionFile, reducers);
+				job.setNumReduceTasks(reducers);
+			}
+		}
 
 		boolean success = job.waitForCompletion(true);
 
 		long finalWordCount = job.getCounters().findCounter("boggle", "finalwords").getValue();
+		long uniqueWordCount = job.getCounters().findCounter("boggle", "uniquewords").getValue();
 
-		logger.info("Finished traversing graph after " + iteration + " iterations.  Found " + finalWordCount
-				+ " total words.  With roll:\n" + roll.toString());
+		if (batch) {
+			logger.info("Finished traversing graph after " + iteration + " iterations.  Found " + finalWordCount
+					+ " total words and " + uniqueWordCount + " unique words.  With " + rolls.size() + " rolls.");
+		} else {
+			logger.info("Finished traversing graph after " + iteration + " iterations.  Found " + finalWordCount
+					+ " total words and " + uniqueWordCount + " unique words.  With roll:\n"
+					+ rolls.get(0).toString());
+		}
 
 		return success;
 	}
 
 	/**
-	 * Writes out the Boggle roll to a file as an adjacency matrix
+	 * Scores the unique words in the output and finds the best words for every roll
+	 * 
+	 * @param output
+	 *            The output directory with the words
+	 * @param configuration
+	 *            The configuration object
+	 * @return If the job was successful
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	private boolean scoreWords(String output, Configuration configuration) throws IOException,
+			InterruptedException, ClassNotFoundException {
+		Job job = new Job(configuration);
+		job.setJarByClass(BoggleDriver.class);
+		job.setJobName("Boggle Scores");
+
+		FileOutputFormat.setOutputPath(job, new Path(output, SCORES_DIRECTORY));
+
+		if (configuration.getBoolean(INLINE_WORDS_PARAM, INLINE_WORDS_DEFAULT)) {
+			// The inline words have a line for every path so the duplicates are removed before they're scored
+			FileInputFormat.setInputPaths(job, new Path(output, WORDS_NAMED_OUTPUT + "-*"));
+
+			job.setMapperClass(BoggleInlineScoreMapper.class);
+			job.setCombinerClass(BoggleInlineScoreCombiner.class);
+			job.setReducerClass(BoggleInlineScoreReducer.class);
+
+			// The shuffle sorts the copies of a word next to each other and the reducer gets a roll at a time
+			job.setMapOutputKeyClass(RollWordWritable.class);
+			job.setMapOutputValueClass(NullWritable.class);
+			job.setGroupingComparatorClass(RollWordWritable.RollComparator.class);
+		} else {
+			// Only read the words and not the scores directory
+			FileInputFormat.setInputPaths(job, new Path(output, "part-*"));
+
+			// The combiner only keeps the best words so the single roll's reducer doesn't get all of them
+			job.setMapperClass(BoggleScoreMapper.class);
+			job.setCombinerClass(BoggleScoreCombiner.class);
+			job.setReducerClass(BoggleScoreReducer.class);
+		}
+
+		job.setOutputKeyClass(IntWritable.class);
+		job.setOutputValueClass(WordScoresWritable.class);
+
+		if (configuration.get(BATCH_PARAM) != null) {
+			// Every roll's words are on one line so the rolls can be split across reducers
+			job.setNumReduceTasks(configuration.getInt(FINAL_REDUCERS_PARAM, FINAL_REDUCERS_DEFAULT));
+		} else {
+			job.setNumReduceTasks(1);
+		}
+
+		boolean success = job.waitForCompletion(true);
+
+		long totalScore = job.getCounters().findCounter("boggle", "score").getValue();
+
+		logger.info("Scored the words for a total of " + totalScore + " points.  The scores and the best "
+				+ configuration.getInt(TOP_WORDS_PARAM, TOP_WORDS_DEFAULT) + " words for every roll are in "
+				+ new Path(output, SCORES_DIRECTORY));
+
+		return success;
+	}
+
+	/**
+	 * Moves the words the iterations confirmed in to the output directory
 	 * 
 	 * @param input
-	 *            The place to write the roll to
+	 *            The input directory
+	 * @param output
+	 *            The output directory
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param iteration
+	 *            The number of iterations it took to traverse the graph
+	 * @throws IOException
+	 */
+	private void collectWords(String input, String output, FileSystem fileSystem, int iteration) throws IOException {
+		Path outputPath = new Path(output);
+		fileSystem.mkdirs(outputPath);
+
+		for (int i = 1; i <= iteration + 1; i++) {
+			FileStatus[] statuses = fileSystem.globStatus(new Path(getPath(input, i), WORDS_NAMED_OUTPUT + "-*"));
+
+			if (statuses == null) {
+				continue;
+			}
+
+			for (FileStatus status : statuses) {
+				// Keep the iteration in the name so the files from every iteration don't collide
+				String name = status.getPath().getName();
+				Path wordsPath = new Path(outputPath, WORDS_NAMED_OUTPUT + "-" + i
+						+ name.substring(WORDS_NAMED_OUTPUT.length()));
+
+				if (!fileSystem.rename(status.getPath(), wordsPath)) {
+					throw new IOException("Could not move " + status.getPath() + " to " + wordsPath);
+				}
+			}
+		}
+
+		// Mark the output as complete like a job would
+		fileSystem.create(new Path(outputPath, "_SUCCESS")).close();
+
+		logger.info("Moved the words from " + (iteration + 1) + " iterations to " + outputPath);
+	}
+
+	/**
+	 * Scores the words written from the result cache if scoring is turned on
+	 * 
+	 * @param output
+	 *            The output directory with the words
+	 * @param configuration
+	 *            The configuration object
+	 * @return The exit code
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	private int finishCachedWords(String output, Configuration configuration) throws IOException,
+			InterruptedException, ClassNotFoundException {
+		if (configuration.getBoolean(SCORE_PARAM, SCORE_DEFAULT)) {
+			return scoreWords(output, configuration) ? 0 : 1;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Adds the words for the rolls in a batch that missed the result cache to it. If some of the rolls were found in
+	 * the cache, the jobs only solved the others, so their words are written to the output with the cached words.
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param wordsOutput
+	 *            The directory the final job wrote the words for the rolls that missed to
+	 * @param output
+	 *            The output directory
+	 * @param cache
+	 *            The result cache
+	 * @param batchRolls
+	 *            The whole batch
+	 * @param batchLines
+	 *            The lines for every roll in the batch or null for the rolls that missed the cache
+	 * @throws IOException
+	 */
+	private void cacheBatchWords(FileSystem fileSystem, String wordsOutput, String output, RollCache cache,
+			ArrayList<BoggleRoll> batchRolls, List<List<String>> batchLines) throws IOException {
+		// The jobs numbered the rolls that missed in order
+		ArrayList<Integer> missIds = new ArrayList<Integer>();
+
+		for (int rollId = 0; rollId < batchRolls.size(); rollId++) {
+			if (batchLines.get(rollId) == null) {
+				missIds.add(rollId);
+
+				// Rolls without any words don't have a line
+				batchLines.set(rollId, new ArrayList<String>());
+			}
+		}
+
+		for (String line : readLines(fileSystem, new Path(wordsOutput))) {
+			int tab = line.indexOf('\t');
+			batchLines.get(missIds.get(Integer.parseInt(line.substring(0, tab)))).add(line.substring(tab + 1));
+		}
+
+		for (int rollId : missIds) {
+			cache.put(batchRolls.get(rollId), batchLines.get(rollId));
+		}
+
+		if (!wordsOutput.equals(output)) {
+			writeBatchLines(fileSystem, new Path(output), batchLines);
+			fileSystem.delete(new Path(wordsOutput), true);
+		}
+	}
+
+	/**
+	 * Writes out the lines for every roll in a batch with their roll ids like the final job
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param outputPath
+	 *            The output directory
+	 * @param batchLines
+	 *            The lines for every roll in the batch without their roll ids
+	 * @throws IOException
+	 */
+	private void writeBatchLines(FileSystem fileSystem, Path outputPath, List<List<String>> batchLines)
+			throws IOException {
+		List<String> lines = new ArrayList<String>();
+
+		for (int rollId = 0; rollId < batchLines.size(); rollId++) {
+			for (String line : batchLines.get(rollId)) {
+				lines.add(rollId + "\t" + line);
+			}
+		}
+
+		writeLines(fileSystem, outputPath, lines);
+	}
+
+	/**
+	 * Writes out lines to a single part file and marks the output as complete like a job would
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param outputPath
+	 *            The output directory
+	 * @param lines
+	 *            The lines to write
+	 * @throws IOException
+	 */
+	private void writeLines(FileSystem fileSystem, Path outputPath, List<String> lines) throws IOException {
+		Writer writer = new OutputStreamWriter(fileSystem.create(new Path(outputPath, "part-r-00000")), "UTF-8");
+
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+
+		fileSystem.create(new Path(outputPath, "_SUCCESS")).close();
+	}
+
+	/**
+	 * Reads the lines from every part file in the output in order
+	 * 
 	 * @param fileSystem
 	 *            The filesystem object
+	 * @param outputPath
+	 *            The output directory
+	 * @return The lines
+	 * @throws IOException
+	 */
+	private List<String> readLines(FileSystem fileSystem, Path outputPath) throws IOException {
+		FileStatus[] statuses = fileSystem.globStatus(new Path(outputPath, "part-*"));
+		Arrays.sort(statuses);
+
+		List<String> lines = new ArrayList<String>();
+
+		for (FileStatus status : statuses) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(fileSystem.open(status.getPath()),
+					"UTF-8"));
+
+			try {
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Writes out a big Boggle roll to its side file in the roll's compact binary form
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param boardPath
+	 *            The path to write the roll to
 	 * @param roll
 	 *            The Boggle roll to write out
+	 * @throws IOException
+	 */
+	private void writeBoardFile(FileSystem fileSystem, Path boardPath, BoggleRoll roll) throws IOException {
+		DataOutputStream outputStream = fileSystem.create(boardPath);
+
+		try {
+			roll.write(outputStream);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Writes out the Boggle roll to a file as an adjacency matrix
+	 * 
+	 * @param input
+	 *            The place to write the roll to
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param rolls
+	 *            The Boggle rolls to write out
 	 * @param iteration
 	 *            The iteration for the input
 	 * @throws IOException
 	 */
-	private void writeRollFile(String input, FileSystem fileSystem, Configuration configuration, BoggleRoll roll,
-			int iteration) throws IOException {
+	private void writeRollFile(String input, FileSystem fileSystem, Configuration configuration,
+			ArrayList<BoggleRoll> rolls, int iteration) throws IOException {
 		Path parent = getPath(input, iteration);
 		fileSystem.mkdirs(parent);
 
 		SequenceFile.Writer writer = null;
-		
-		for (int i = 0; i < roll.rollCharacters.length; i++) {
-			writer = SequenceFile.createWriter(fileSystem, configuration, new Path(parent, i + ".txt"),
-					Text.class, RollGraphWritable.class);
-			
-			for (int j = 0; j < roll.rollCharacters[i].length; j++) {
-				ArrayList<Node> nodes = new ArrayList<Node>();
-				nodes.add(new Node(i, j));
 
-				RollGraphWritable graphWritable = new RollGraphWritable(nodes, false);
+		int maxRollSize = getMaxRollSize(rolls);
+
+		// The roll file is only a few nodes so it isn't worth compressing unless a codec is asked for
+		Class<? extends CompressionCodec> codecClass = configuration.getClass(ROLL_CODEC_PARAM, null,
+				CompressionCodec.class);
+		CompressionCodec codec = codecClass != null ? ReflectionUtils.newInstance(codecClass, configuration) : null;
+
+		// Each file holds the same row of every roll
+		for (int i = 0; i < maxRollSize; i++) {
+			if (codec != null) {
+				writer = SequenceFile.createWriter(fileSystem, configuration, new Path(parent, i + ".txt"),
+						NullWritable.class, RollGraphWritable.class, CompressionType.BLOCK, codec);
+			} else {
+				writer = SequenceFile.createWriter(fileSystem, configuration, new Path(parent, i + ".txt"),
+						NullWritable.class, RollGraphWritable.class, CompressionType.NONE);
+			}
+
+			for (int rollId = 0; rollId < rolls.size(); rollId++) {
+				BoggleRoll roll = rolls.get(rollId);
 
-				Text text = new Text(roll.rollCharacters[i][j]);
+				if (i >= roll.rollSize) {
+					// Smaller rolls don't have this row
+					continue;
+				}
 
-				// Mimic the adjacency matrix written by the mapper to start things off
-				writer.append(text, graphWritable);
+				for (int j = 0; j < roll.rollCharacters[i].length; j++) {
+					RollGraphWritable graphWritable = new RollGraphWritable(i * roll.rollSize + j, false);
+					graphWritable.rollId = rollId;
+
+					// Mimic the adjacency matrix written by the mapper to start things off. The characters are
+					// rebuilt from the cells.
+					writer.append(NullWritable.get(), graphWritable);
+				}
 			}
-			
+
 			IOUtils.closeStream(writer);
 		}
 		
 		IOUtils.closeStream(writer);
 	}
 
+	/**
+	 * Writes out the split points for the TotalOrderPartitioner so every reducer gets the same number of rolls or tiles
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param partitionFile
+	 *            The path to write the split points to
+	 * @param count
+	 *            The number of rolls in the batch or tiles in the roll
+	 * @param reducers
+	 *            The number of reducers
+	 * @throws IOException
+	 */
+	private void writeRangePartitionFile(Configuration configuration, Path partitionFile, int count, int reducers)
+			throws IOException {
+		FileSystem fileSystem = partitionFile.getFileSystem(configuration);
+		fileSystem.delete(partitionFile, false);
+
+		SequenceFile.Writer writer = SequenceFile.createWriter(fileSystem, configuration, partitionFile,
+				IntWritable.class, NullWritable.class);
+
+		try {
+			// Each split point is the first roll or tile for the next reducer
+			for (int i = 1; i < reducers; i++) {
+				writer.append(new IntWritable((int) ((long) i * count / reducers)), NullWritable.get());
+			}
+		} finally {
+			IOUtils.closeStream(writer);
+		}
+	}
+
+	/**
+	 * Writes out the split points for the TotalOrderPartitioner so every reducer gets the same number of dictionary
+	 * words
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param partitionFile
+	 *            The path to write the split points to
+	 * @param reducers
+	 *            The number of reducers
+	 * @return The number of reducers the split points are for. It's less than asked for if the dictionary doesn't
+	 *         have a word to start every reducer with.
+	 * @throws IOException
+	 */
+	private int writeWordPartitionFile(Configuration configuration, Path partitionFile, int reducers)
+			throws IOException {
+		FileSystem fileSystem = partitionFile.getFileSystem(configuration);
+		fileSystem.delete(partitionFile, false);
+
+		List<String> words = DictionaryCompiler.readWords(FileSystem.get(configuration),
+				new Path(configuration.get(DICTIONARY_PARAM)));
+
+		// The words are sorted and unique so the split points only repeat if there are more reducers than words
+		reducers = Math.max(1, Math.min(reducers, words.size()));
+
+		SequenceFile.Writer writer = SequenceFile.createWriter(fileSystem, configuration, partitionFile, Text.class,
+				NullWritable.class);
+
+		try {
+			// Each split point is the first word for the next reducer
+			for (int i = 1; i < reducers; i++) {
+				writer.append(new Text(words.get((int) ((long) i * words.size() / reducers))), NullWritable.get());
+			}
+		} finally {
+			IOUtils.closeStream(writer);
+		}
+
+		return reducers;
+	}
+
+	/**
+	 * Adds an input path to the job if the path or glob matches any files
+	 * 
+	 * @param job
+	 *            The job to add the input to
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path or glob to add
+	 * @throws IOException
+	 */
+	private void addInputPathIfExists(Job job, FileSystem fileSystem, Path path) throws IOException {
+		FileStatus[] statuses = fileSystem.globStatus(path);
+
+		if (statuses != null && statuses.length != 0) {
+			FileInputFormat.addInputPath(job, path);
+		}
+	}
+
+	/**
+	 * Logs how evenly the nodes were spread across the map tasks. The slowest task sets the time for the iteration.
+	 * 
+	 * @param job
+	 *            The finished job
+	 * @param iteration
+	 *            The iteration number
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void logTaskSkew(Job job, int iteration) throws IOException, InterruptedException {
+		TaskReport[] reports = job.getTaskReports(TaskType.MAP);
+
+		if (reports == null || reports.length == 0) {
+			// The local job runner doesn't keep task reports. Every task logs its own counts.
+			return;
+		}
+
+		long minRecords = Long.MAX_VALUE;
+		long maxRecords = 0;
+		long totalRecords = 0;
+		long maxMillis = 0;
+
+		for (TaskReport report : reports) {
+			long records = report.getTaskCounters().findCounter(TaskCounter.MAP_INPUT_RECORDS).getValue();
+
+			minRecords = Math.min(minRecords, records);
+			maxRecords = Math.max(maxRecords, records);
+			totalRecords += records;
+			maxMillis = Math.max(maxMillis, report.getFinishTime() - report.getStartTime());
+		}
+
+		logger.info("Iteration " + iteration + " ran " + reports.length + " map tasks.  Nodes per task min "
+				+ minRecords + " mean " + (totalRecords / reports.length) + " max " + maxRecords
+				+ ".  Slowest task took " + maxMillis + " ms.");
+	}
+
+	/**
+	 * Logs the bytes an iteration read and wrote and how well the nodes it wrote were compressed
+	 * 
+	 * @param job
+	 *            The finished job
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param outputPath
+	 *            The iteration's output directory
+	 * @param iteration
+	 *            The iteration number
+	 * @param bytesRead
+	 *            The bytes in the files the iteration read
+	 * @return The bytes in the files the iteration wrote
+	 * @throws IOException
+	 */
+	private long logIterationBytes(Job job, FileSystem fileSystem, Path outputPath, int iteration, long bytesRead)
+			throws IOException {
+		long bytesWritten = getInputBytes(fileSystem, outputPath);
+
+		// Inline words are written as text so only the node files are compared to the nodes' bytes
+		long nodeBytes = getInputBytes(fileSystem, new Path(outputPath, "part-*"))
+				+ getInputBytes(fileSystem, new Path(outputPath, FINAL_NAMED_OUTPUT + "-*"));
+		long serializedBytes = job.getCounters().findCounter("boggle", "serializedbytes").getValue();
+
+		String ratio = nodeBytes == 0 ? "n/a" : String.format("%.2f", (double) serializedBytes / nodeBytes);
+
+		logger.info("Iteration " + iteration + " read " + bytesRead + " bytes and wrote " + bytesWritten
+				+ " bytes.  The nodes took " + serializedBytes + " bytes before compression and " + nodeBytes
+				+ " bytes after for a compression ratio of " + ratio + ".");
+
+		return bytesWritten;
+	}
+
+	/**
+	 * Deletes the files an iteration read its frontier from. The finished nodes and words in the same directory are
+	 * kept for the final job.
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param frontierPath
+	 *            The directory or glob the iteration read
+	 * @throws IOException
+	 */
+	private void deleteFrontier(FileSystem fileSystem, Path frontierPath) throws IOException {
+		FileStatus[] statuses = fileSystem.globStatus(frontierPath);
+
+		if (statuses == null) {
+			return;
+		}
+
+		for (FileStatus status : statuses) {
+			fileSystem.delete(status.getPath(), true);
+		}
+	}
+
+	/**
+	 * Gets the number of bytes in the files an iteration reads
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The directory or glob the iteration reads
+	 * @return The number of bytes
+	 * @throws IOException
+	 */
+	private long getInputBytes(FileSystem fileSystem, Path path) throws IOException {
+		FileStatus[] statuses = fileSystem.globStatus(path);
+		long bytes = 0;
+
+		if (statuses == null) {
+			return bytes;
+		}
+
+		for (FileStatus status : statuses) {
+			if (status.isDirectory()) {
+				// Skip the hidden files like FileInputFormat does
+				for (FileStatus child : fileSystem.listStatus(status.getPath())) {
+					String name = child.getPath().getName();
+
+					if (!name.startsWith("_") && !name.startsWith(".")) {
+						bytes += child.getLen();
+					}
+				}
+			} else {
+				bytes += status.getLen();
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Gets the number of cells in all of the rolls
+	 * 
+	 * @param rolls
+	 *            The Boggle rolls
+	 * @return The number of cells
+	 */
+	private long getCellCount(ArrayList<BoggleRoll> rolls) {
+		long cellCount = 0;
+
+		for (BoggleRoll roll : rolls) {
+			cellCount += roll.rollSize * roll.rollSize;
+		}
+
+		return cellCount;
+	}
+
+	/**
+	 * Gets the size of the biggest roll
+	 * 
+	 * @param rolls
+	 *            The Boggle rolls
+	 * @return The biggest roll size
+	 */
+	private int getMaxRollSize(ArrayList<BoggleRoll> rolls) {
+		int maxRollSize = 0;
+
+		for (BoggleRoll roll : rolls) {
+			maxRollSize = Math.max(maxRollSize, roll.rollSize);
+		}
+
+		return maxRollSize;
+	}
+
 	/**
 	 * Gets the path based on the iteration
 	 * 
@@ -286,6 +1512,27 @@ public class BoggleDriver extends Configured implements Tool {
 		return new Path(input + "-" + iteration);
 	}
 
+	/**
+	 * Gets the path to the nodes that still need to be expanded for the iteration
+	 * 
+	 * @param input
+	 *            The base input directory
+	 * @param iteration
+	 *            The iteration number
+	 * @param frontierOnly
+	 *            If the iterations write their finished nodes to a side output
+	 * @return The path for the iteration's frontier
+	 */
+	private Path getFrontierPath(String input, int iteration, boolean frontierOnly) {
+		if (!frontierOnly || iteration == 0) {
+			// The roll file and the full graph copies are read as a whole
+			return getPath(input, iteration);
+		}
+
+		// Skip the side output with the finished nodes
+		return new Path(getPath(input, iteration), "part-*");
+	}
+
 	public static void main(String[] args) throws Exception {
 		int exitCode = ToolRunner.run(new Configuration(), new BoggleDriver(), args);
 		System.exit(exitCode);
@@ -0,0 +1,19 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Removes the duplicate inline words before the shuffle. The combiner groups by the whole key, so every call is one
+ * word of one roll.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleInlineScoreCombiner extends Reducer<RollWordWritable, NullWritable, RollWordWritable, NullWritable> {
+	@Override
+	public void reduce(RollWordWritable key, Iterable<NullWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(key, NullWritable.get());
+	}
+}
@@ -0,0 +1,44 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Keys the words confirmed in the traversal iterations by roll and word so they can be scored. The iterations write a
+ * line for every path a word was found along, so the words aren't unique yet.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleInlineScoreMapper extends Mapper<LongWritable, Text, RollWordWritable, NullWritable> {
+	/** If a batch of rolls is being scored */
+	private boolean batch;
+
+	/** The roll and word to emit */
+	private RollWordWritable rollWord = new RollWordWritable();
+
+	@Override
+	public void setup(Context context) throws IOException {
+		Configuration configuration = context.getConfiguration();
+
+		batch = configuration.get(BoggleDriver.BATCH_PARAM) != null;
+	}
+
+	@Override
+	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+		String[] fields = value.toString().split("\t");
+
+		if (batch) {
+			// The roll id and the word
+			rollWord.set(Integer.parseInt(fields[0]), fields[1]);
+		} else {
+			// The word, the number of paths and the representative path
+			rollWord.set(0, fields[0]);
+		}
+
+		context.write(rollWord, NullWritable.get());
+	}
+}
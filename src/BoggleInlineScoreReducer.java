@@ -0,0 +1,60 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Scores the unique words confirmed in the traversal iterations. Emits the total score, the number of words and the
+ * best words for every roll like BoggleScoreReducer.
+ * 
+ * The keys are grouped by roll and sorted by word, so the copies of a word are next to each other. Every new word goes
+ * straight in to the scores and only the last word is kept to spot the copies.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleInlineScoreReducer extends Reducer<RollWordWritable, NullWritable, IntWritable, WordScoresWritable> {
+	/** The roll id to emit */
+	private IntWritable rollId = new IntWritable();
+
+	/** The scores to emit */
+	private WordScoresWritable scores = new WordScoresWritable();
+
+	/** The last word scored for the roll */
+	private Text lastWord = new Text();
+
+	/** The number of best words to keep for every roll */
+	private int topWords;
+
+	@Override
+	public void setup(Context context) {
+		Configuration configuration = context.getConfiguration();
+
+		topWords = configuration.getInt(BoggleDriver.TOP_WORDS_PARAM, BoggleDriver.TOP_WORDS_DEFAULT);
+	}
+
+	@Override
+	public void reduce(RollWordWritable key, Iterable<NullWritable> values, Context context) throws IOException,
+			InterruptedException {
+		scores.clear();
+		rollId.set(key.getRollId());
+
+		boolean first = true;
+
+		// The key changes to the next word as the values are iterated
+		for (NullWritable value : values) {
+			if (first || !key.getWord().equals(lastWord)) {
+				scores.add(key.getWord().toString(), topWords);
+				lastWord.set(key.getWord());
+				first = false;
+			}
+		}
+
+		context.write(rollId, scores);
+
+		context.getCounter("boggle", "score").increment(scores.getTotalScore());
+	}
+}
@@ -0,0 +1,362 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Finds all words in a Boggle roll in memory instead of running the MapReduce jobs. Each starting cell is searched
+ * depth first by its own task so that the work is spread across all cores.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleLocalSolver {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The Boggle Roll that is being process */
+	private BoggleRoll roll;
+
+	/** The cells next to every cell in the roll */
+	private int[][] neighbors;
+
+	/** The letters of every cell in the roll as bytes */
+	private byte[][] letters;
+
+	/** The prefix trie with the dictionary */
+	private PrefixTrie trie;
+
+	/** The minimum size for a word to be output */
+	private int minimumWordSize;
+
+	/** The maximum number of nodes in a path */
+	private int maxNodes;
+
+	/** The number of threads to search with */
+	private int threads;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param roll
+	 *            The Boggle roll to solve
+	 * @throws IOException
+	 */
+	public BoggleLocalSolver(Configuration configuration, BoggleRoll roll) throws IOException {
+		this(configuration, roll, loadTrie(configuration));
+	}
+
+	/**
+	 * Constructor for an already loaded trie
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param roll
+	 *            The Boggle roll to solve
+	 * @param trie
+	 *            The prefix trie with the dictionary
+	 */
+	public BoggleLocalSolver(Configuration configuration, BoggleRoll roll, PrefixTrie trie) {
+		this.roll = roll;
+		this.trie = trie;
+
+		minimumWordSize = configuration.getInt(BoggleDriver.MINIMUM_WORD_SIZE_PARAM,
+				BoggleDriver.MINIMUM_WORD_SIZE_DEFAULT);
+
+		// Go as deep as the iterative jobs would so the words are the same
+		maxNodes = getMaxPathLength(configuration, roll.rollSize);
+
+		threads = configuration.getInt(BoggleDriver.LOCAL_SOLVER_THREADS_PARAM, Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	/**
+	 * Gets the most nodes a path can have. The iterations run until maxiterations and every iteration adds up to
+	 * expansiondepth nodes after the starting node, but a path can't have more nodes than the roll has cells.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param rollSize
+	 *            The size of the roll
+	 * @return The maximum number of nodes in a path
+	 */
+	public static int getMaxPathLength(Configuration configuration, int rollSize) {
+		long iterations = configuration.getInt(BoggleDriver.MAX_ITERATIONS_PARAM,
+				BoggleDriver.MAX_ITERATIONS_DEFAULT) + 1L;
+		int expansionDepth = Math.max(1, configuration.getInt(BoggleDriver.EXPANSION_DEPTH_PARAM,
+				BoggleDriver.EXPANSION_DEPTH_DEFAULT));
+
+		return (int) Math.min((long) rollSize * rollSize, iterations * expansionDepth + 1);
+	}
+
+	/**
+	 * Loads the trie if one was configured, otherwise builds it from the dictionary
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @return The prefix trie with the dictionary
+	 * @throws IOException
+	 */
+	public static PrefixTrie loadTrie(Configuration configuration) throws IOException {
+		if (configuration.get(BoggleDriver.TRIE_PARAM) != null) {
+			return PrefixTrie.open(configuration);
+		}
+
+		PrefixTrie.Builder builder = new PrefixTrie.Builder();
+
+		for (String word : DictionaryCompiler.readWords(FileSystem.get(configuration),
+				new Path(configuration.get(BoggleDriver.DICTIONARY_PARAM)))) {
+			builder.add(word);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Finds every word in the roll
+	 * 
+	 * @return The words and the nodes making them up sorted by word
+	 * @throws InterruptedException
+	 */
+	public List<WordPath> solve() throws InterruptedException {
+		// Build the tables before the searches share them
+		neighbors = roll.getNeighbors();
+		letters = roll.getLetterBytes();
+
+		List<WordPath> words = new ArrayList<WordPath>();
+
+		if (threads == 1) {
+			// The solving service already solves a roll per thread so a pool would only add overhead
+			for (int cell = 0; cell < neighbors.length; cell++) {
+				words.addAll(new StartingCellSearch(cell).call());
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+			try {
+				List<Future<List<WordPath>>> futures = new ArrayList<Future<List<WordPath>>>();
+
+				// Split the work up by starting cell
+				for (int cell = 0; cell < neighbors.length; cell++) {
+					futures.add(executor.submit(new StartingCellSearch(cell)));
+				}
+
+				for (Future<List<WordPath>> future : futures) {
+					words.addAll(future.get());
+				}
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Search for the starting cell failed", e.getCause());
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		// Sort the same way the final job's shuffle would
+		Collections.sort(words, new Comparator<WordPath>() {
+			@Override
+			public int compare(WordPath wordPath1, WordPath wordPath2) {
+				int comparison = wordPath1.word.compareTo(wordPath2.word);
+				return comparison != 0 ? comparison : wordPath1.graph.toString().compareTo(
+						wordPath2.graph.toString());
+			}
+		});
+
+		return words;
+	}
+
+	/**
+	 * Finds every word in the roll and writes them out the same way as the final job. Each unique word is written once
+	 * with the number of paths it was found along and the path with the lowest cells.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param output
+	 *            The output directory
+	 * @return The number of unique words written
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public long solve(Configuration configuration, String output) throws IOException, InterruptedException {
+		List<WordPath> words = solve();
+
+		boolean representativePath = configuration.getBoolean(BoggleDriver.REPRESENTATIVE_PATH_PARAM,
+				BoggleDriver.REPRESENTATIVE_PATH_DEFAULT);
+
+		FileSystem fileSystem = FileSystem.get(configuration);
+		Path outputPath = new Path(output);
+
+		Writer writer = new OutputStreamWriter(fileSystem.create(new Path(outputPath, "part-r-00000")), "UTF-8");
+
+		long uniqueWords;
+
+		try {
+			uniqueWords = writeWords(words, representativePath, writer);
+		} finally {
+			writer.close();
+		}
+
+		// Mark the output as complete like a job would
+		fileSystem.create(new Path(outputPath, "_SUCCESS")).close();
+
+		logger.info("Finished solving locally with " + threads + " threads.  Found " + words.size()
+				+ " total words and " + uniqueWords + " unique words.  With roll:\n" + roll.toString());
+
+		return uniqueWords;
+	}
+
+	/**
+	 * Writes out the words the same way as the final job. Each unique word is written once with the number of paths it
+	 * was found along and the path with the lowest cells.
+	 * 
+	 * @param words
+	 *            The words and the nodes making them up sorted by word
+	 * @param representativePath
+	 *            If the path is written with every word
+	 * @param writer
+	 *            The writer to write the words to
+	 * @return The number of unique words written
+	 * @throws IOException
+	 */
+	public static long writeWords(List<WordPath> words, boolean representativePath, Writer writer)
+			throws IOException {
+		long uniqueWords = 0;
+
+		// The paths for a word are next to each other after sorting
+		for (int i = 0; i < words.size();) {
+			WordPath wordPath = words.get(i);
+			RollGraphWritable path = wordPath.graph;
+			int count = 0;
+
+			for (; i < words.size() && words.get(i).word.equals(wordPath.word); i++, count++) {
+				if (words.get(i).graph.compareCells(path) < 0) {
+					path = words.get(i).graph;
+				}
+			}
+
+			writer.write(wordPath.word + "\t" + count + (representativePath ? "\t" + path : "") + "\n");
+
+			uniqueWords++;
+		}
+
+		return uniqueWords;
+	}
+
+	/**
+	 * A word and the nodes in the roll making it up
+	 */
+	public static class WordPath {
+		/** The word */
+		public String word;
+
+		/** The nodes making up the word */
+		public RollGraphWritable graph;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param word
+		 *            The word
+		 * @param graph
+		 *            The nodes making up the word
+		 */
+		public WordPath(String word, RollGraphWritable graph) {
+			this.word = word;
+			this.graph = graph;
+		}
+	}
+
+	/**
+	 * Searches all paths from a single starting cell depth first
+	 */
+	private class StartingCellSearch implements Callable<List<WordPath>> {
+		/** The starting cell */
+		private int cell;
+
+		/** The cells in the path */
+		private RollGraphWritable path = new RollGraphWritable();
+
+		/** The characters in the path */
+		private StringBuilder chars = new StringBuilder();
+
+		/** The words found so far */
+		private List<WordPath> words = new ArrayList<WordPath>();
+
+		/**
+		 * Constructor
+		 * 
+		 * @param cell
+		 *            The starting cell
+		 */
+		public StartingCellSearch(int cell) {
+			this.cell = cell;
+		}
+
+		@Override
+		public List<WordPath> call() {
+			search(cell, PrefixTrie.ROOT);
+
+			return words;
+		}
+
+		/**
+		 * Adds a cell to the path and searches all of its neighbors
+		 * 
+		 * @param cell
+		 *            The cell
+		 * @param parentTrieNode
+		 *            The trie node for the path without the cell
+		 */
+		private void search(int cell, int parentTrieNode) {
+			byte[] letterBytes = letters[cell];
+
+			int trieNode = trie.step(parentTrieNode, letterBytes, 0, letterBytes.length);
+
+			if (trieNode == PrefixTrie.NO_NODE) {
+				// No word starts with these characters
+				return;
+			}
+
+			int charsLength = chars.length();
+
+			path.addCell(cell);
+
+			for (byte letter : letterBytes) {
+				chars.append((char) letter);
+			}
+
+			if (chars.length() >= minimumWordSize && trie.isWord(trieNode)) {
+				RollGraphWritable wordPath = new RollGraphWritable(path);
+				wordPath.isFinal = true;
+				wordPath.trieNode = trieNode;
+
+				words.add(new WordPath(chars.toString(), wordPath));
+			}
+
+			if (path.getLength() < maxNodes && trie.hasChildren(trieNode)) {
+				for (int nextCell : neighbors[cell]) {
+					if (!path.isVisited(nextCell)) {
+						search(nextCell, trieNode);
+					}
+				}
+			}
+
+			// Take the cell back out of the path
+			path.removeLastCell();
+			chars.setLength(charsLength);
+		}
+	}
+}
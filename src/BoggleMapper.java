@@ -1,121 +1,474 @@
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.util.bloom.BloomFilter;
-import org.apache.hadoop.util.bloom.Key;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import org.apache.log4j.Logger;
 
-public class BoggleMapper extends Mapper<Text, RollGraphWritable, Text, RollGraphWritable> {
+public class BoggleMapper extends Mapper<NullWritable, RollGraphWritable, Writable, RollGraphWritable> {
 	private static final Logger logger = Logger.getLogger("Boggle");
 
-	/** The Boggle Roll that is being process */
-	private BoggleRoll roll;
+	/** The Boggle Rolls that are being processed with the letters of every cell as bytes */
+	private RollLetters rolls;
 
 	/** The Bloom Filter with the dictionary */
-	private BloomFilter bloomFilter;
+	private MappedBloomFilter bloomFilter;
+
+	/** The prefix trie with the dictionary. Null if the Bloom Filter is used instead. */
+	private PrefixTrie trie;
+
+	/** The side output for finished nodes and inline words. Null if the whole graph is copied. */
+	private MultipleOutputs<Writable, RollGraphWritable> multipleOutputs;
+
+	/** The dictionary to confirm words with as they are found. Null if the final job confirms them. */
+	private WordDictionary words;
+
+	/** The minimum size for a word to be output */
+	private int minimumWordSize;
+
+	/** If a path is kept for every word */
+	private boolean representativePath;
+
+	/** The path to emit for an inline word */
+	private WordPathsWritable wordPaths = new WordPathsWritable();
+
+	/** The roll id to emit for an inline word in a batch */
+	private IntWritable rollIdWritable = new IntWritable();
+
+	/** If a batch of rolls is being processed */
+	private boolean batch;
+
+	/** The number of levels to expand in memory for every node */
+	private int expansionDepth;
+
+	/** The most nodes to expand in memory for a single node */
+	private int expansionBudget;
+
+	/** The number of nodes that can still be expanded in memory for the node being processed */
+	private int expansionsLeft;
+
+	/** The characters of the word being written to the words output. Reused for every word. */
+	private Text nextKey = new Text();
+
+	/** The bytes of the characters of the node being expanded. Nodes are written without them. */
+	private byte[] nextKeyBytes = new byte[64];
+
+	/** If the frontier nodes are keyed by their state so equivalent nodes are merged before the next iteration */
+	private boolean canonicalStates;
+
+	/** The state of the frontier node being written. Reused for every node. */
+	private BytesWritable stateKey = new BytesWritable();
+
+	/** The buffer the state is serialized to */
+	private DataOutputBuffer stateBuffer = new DataOutputBuffer();
+
+	/** The number of rows and columns in every tile the frontier is grouped by. 0 if it isn't grouped. */
+	private int tileSize;
+
+	/** The tile of the frontier node being written. Reused for every node. */
+	private IntWritable tileKey = new IntWritable();
+
+	/** The counter for the potential words found */
+	private Counter wordsCounter;
+
+	/** The counter for the nodes added to the frontier */
+	private Counter frontierCounter;
+
+	/** The counter for the nodes thrown out by the Bloom Filter or trie */
+	private Counter prunedCounter;
+
+	/** The counter for the nodes thrown out by the dictionary when words are confirmed inline */
+	private Counter dictionaryCounter;
+
+	/** The counter for the words confirmed inline */
+	private Counter finalWordsCounter;
+
+	/** The counter for the bytes of the nodes written before they're compressed */
+	private Counter serializedBytesCounter;
+
+	/** The counters for the nodes expanded by path length. Null unless the metrics are collected. */
+	private Counter[] expandedCounters;
+
+	/** The counters for the children that passed the Bloom Filter or trie by path length */
+	private Counter[] childrenCounters;
+
+	/** The counters for the children thrown out by the Bloom Filter or trie by path length */
+	private Counter[] prunedCounters;
 
 	@Override
 	public void setup(Context context) throws IOException {
 		Configuration configuration = context.getConfiguration();
 
-		// Get the Boggle Roll
-		roll = BoggleRoll.deserialize(configuration.get(BoggleDriver.ROLL_PARAM));
+		// Get the Boggle Rolls
+		batch = configuration.get(BoggleDriver.BATCH_PARAM) != null;
+		rolls = new RollLetters(configuration);
+
+		// Load the Bloom Filter. Both are memory mapped from the distributed cache if they were shipped with it.
+		if (configuration.get(BoggleDriver.TRIE_PARAM) != null) {
+			// The trie prunes exactly so the Bloom Filter isn't needed
+			trie = PrefixTrie.open(configuration);
+		} else if (configuration.getBoolean(BoggleDriver.ENABLE_BLOOM_PARAM, BoggleDriver.ENABLE_BLOOM_DEFAULT)) {
+			// Only allow BloomFilter usage if it's turned on. The file has the filter's size and hashes.
+			bloomFilter = MappedBloomFilter.open(configuration);
+		}
+
+		if (configuration.getBoolean(BoggleDriver.INLINE_WORDS_PARAM, BoggleDriver.INLINE_WORDS_DEFAULT)) {
+			// Words are written as soon as they're found so finished nodes aren't needed anymore
+			words = new WordDictionary(configuration);
+
+			minimumWordSize = configuration.getInt(BoggleDriver.MINIMUM_WORD_SIZE_PARAM,
+					BoggleDriver.MINIMUM_WORD_SIZE_DEFAULT);
+			representativePath = configuration.getBoolean(BoggleDriver.REPRESENTATIVE_PATH_PARAM,
+					BoggleDriver.REPRESENTATIVE_PATH_DEFAULT);
+		}
+
+		if (words != null
+				|| configuration.getBoolean(BoggleDriver.FRONTIER_ONLY_PARAM, BoggleDriver.FRONTIER_ONLY_DEFAULT)) {
+			multipleOutputs = new MultipleOutputs<Writable, RollGraphWritable>(context);
+		}
+
+		canonicalStates = configuration.getBoolean(BoggleDriver.CANONICAL_STATES_PARAM,
+				BoggleDriver.CANONICAL_STATES_DEFAULT);
+		tileSize = configuration.getInt(BoggleDriver.TILE_SIZE_PARAM, BoggleDriver.TILE_SIZE_DEFAULT);
 
-		// Load the Bloom Filter
-		FileSystem fileSystem = FileSystem.get(configuration);
+		// Expanding deeper in memory saves iterations
+		expansionDepth = Math.max(1, configuration.getInt(BoggleDriver.EXPANSION_DEPTH_PARAM,
+				BoggleDriver.EXPANSION_DEPTH_DEFAULT));
+		expansionBudget = configuration.getInt(BoggleDriver.EXPANSION_BUDGET_PARAM,
+				BoggleDriver.EXPANSION_BUDGET_DEFAULT);
 
-		if (configuration.getBoolean(BoggleDriver.ENABLE_BLOOM_PARAM, BoggleDriver.ENABLE_BLOOM_DEFAULT)) {
-			// Only allow BloomFilter usage if it's turned on
-			bloomFilter = new BloomFilter(UserDictBloom.VECTOR_SIZE, UserDictBloom.NBHASH, UserDictBloom.HASH_TYPE);
-			bloomFilter.readFields(fileSystem.open(new Path(configuration.get(BoggleDriver.BLOOM_PARAM))));
+		// Looking up counters by name is too slow for every node
+		wordsCounter = context.getCounter("boggle", "words");
+		frontierCounter = context.getCounter("boggle", "frontier");
+		prunedCounter = context.getCounter("boggle", trie != null ? "trie" : "bloom");
+		dictionaryCounter = context.getCounter("boggle", "dictionary");
+		finalWordsCounter = context.getCounter("boggle", "finalwords");
+		serializedBytesCounter = context.getCounter("boggle", "serializedbytes");
+
+		if (configuration.getBoolean(BoggleDriver.METRICS_PARAM, BoggleDriver.METRICS_DEFAULT)) {
+			expandedCounters = getLengthCounters(context, TraversalMetrics.EXPANDED);
+			childrenCounters = getLengthCounters(context, TraversalMetrics.CHILDREN);
+			prunedCounters = getLengthCounters(context, TraversalMetrics.PRUNED);
 		}
 	}
 
 	@Override
-	public void map(Text key, RollGraphWritable value, Context context) throws IOException, InterruptedException {
+	public void cleanup(Context context) throws IOException, InterruptedException {
+		if (multipleOutputs != null) {
+			multipleOutputs.close();
+		}
+
+		// The counters are still only this task's so the skew between tasks shows up in their logs
+		logger.info("Read " + context.getCounter(TaskCounter.MAP_INPUT_RECORDS).getValue() + " nodes and expanded "
+				+ frontierCounter.getValue() + " new nodes.");
+	}
+
+	@Override
+	public void map(NullWritable key, RollGraphWritable value, Context context) throws IOException,
+			InterruptedException {
 		if (!value.isFinal) {
-			processNonFinalNode(context, key.toString(), value);
+			processNonFinalNode(context, value);
 		} else {
-			context.write(key, value);
+			// Finished nodes are copied without rebuilding their characters
+			writeFinal(context, value);
 
 			// Use counters to keep track of how many words were found so far
-			context.getCounter("boggle", "words").increment(1);
+			wordsCounter.increment(1);
 		}
 	}
 
 	/**
-	 * Emits the nodes around the last processed node
+	 * Emits the nodes around the last processed node. The children are built in place in the key's bytes and the
+	 * RollGraphWritable so that nothing is allocated per node.
 	 * 
 	 * @param context
 	 *            The context object for incrementing
-	 * @param charsSoFar
-	 *            The characters making up the node so far
 	 * @param rollGraph
 	 *            The RollGraphWritable representing the nodes
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
-	private void processNonFinalNode(Context context, String charsSoFar, RollGraphWritable rollGraph)
-			throws IOException, InterruptedException {
+	private void processNonFinalNode(Context context, RollGraphWritable rollGraph) throws IOException,
+			InterruptedException {
+		// Rebuild the characters from the cells. The children start with the same characters.
+		ensureNextKeyCapacity(rolls.getMaxCharsLength(rollGraph) + rolls.getMaxLetterLength());
+		int charsLength = rolls.getChars(rollGraph, nextKeyBytes);
+
+		if (trie != null && rollGraph.trieNode == PrefixTrie.NO_NODE) {
+			// The starting letters haven't been looked up yet
+			rollGraph.trieNode = trie.find(nextKeyBytes, 0, charsLength);
+		}
+
+		if (words != null && rollGraph.getLength() == 1) {
+			// The starting letters weren't checked when they were written
+			writeIfWord(nextKeyBytes, charsLength, rollGraph.trieNode, rollGraph);
+		}
+
 		// Mark node as exhausted and emit
 		rollGraph.isFinal = true;
-		context.write(new Text(charsSoFar), rollGraph);
+		writeFinal(context, rollGraph);
+
+		if (trie != null && !trie.hasChildren(rollGraph.trieNode)) {
+			// No word continues past these characters
+			return;
+		}
 
+		expansionsLeft = expansionBudget;
+
+		expandChildren(context, charsLength, rollGraph, expansionDepth);
+
+		// Put the node back the way it was emitted
+		rollGraph.isFinal = true;
+	}
+
+	/**
+	 * Emits the nodes around the last node in the path. Children that can still be expanded within the depth and
+	 * budget are expanded depth first in memory and emitted as finished nodes. The rest are emitted for the next
+	 * iteration to expand.
+	 * 
+	 * @param context
+	 *            The context object for emitting
+	 * @param charsLength
+	 *            The number of bytes in nextKeyBytes making up the node
+	 * @param rollGraph
+	 *            The RollGraphWritable representing the nodes
+	 * @param depth
+	 *            The number of levels left to expand in memory including the children
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void expandChildren(Context context, int charsLength, RollGraphWritable rollGraph, int depth)
+			throws IOException, InterruptedException {
 		// Emit the characters around the last node in the Boggle Roll
-		Node node = rollGraph.nodes.get(rollGraph.nodes.size() - 1);
+		byte[][] letters = rolls.getLetters(rollGraph.rollId);
+		int trieNode = rollGraph.trieNode;
 
-		boolean proceed;
-		
-		for (int row = node.row - 1; row < node.row + 2; row++) {
-			if (row < 0 || row >= roll.rollSize) {
-				// Check if row is outside the bounds and skip if so
-				continue;
-			}
+		// The neighbors are already inside the roll so there aren't any bounds to check
+		int[] neighbors = rolls.getRoll(rollGraph.rollId).getNeighbors()[rollGraph.getLastCell()];
 
-			for (int col = node.column - 1; col < node.column + 2; col++) {
-				if (col < 0 || col >= roll.rollSize) {
-					// Check if column is outside the bounds and skip if so
-					continue;
-				}
+		int nextPathLength = Math.min(rollGraph.getLength() + 1, TraversalMetrics.MAX_LENGTH);
+
+		if (expandedCounters != null) {
+			// Longer paths are counted together like the counters for their children
+			expandedCounters[Math.min(rollGraph.getLength(), TraversalMetrics.MAX_LENGTH)].increment(1);
+		}
+
+		boolean proceed;
+		int nextTrieNode = PrefixTrie.NO_NODE;
 
-				// Found viable row and column. See if node has already been traversed
-				Node nextNode = new Node(row, col);
+		for (int i = 0; i < neighbors.length; i++) {
+			// See if node has already been traversed
+			int nextCell = neighbors[i];
 
-				if (!rollGraph.nodes.contains(nextNode)) {
-					// Node not found, see if it passes the membership test
-					String newWord = charsSoFar + roll.rollCharacters[row][col];
+			if (!rollGraph.isVisited(nextCell)) {
+				// Node not found, see if it passes the membership test
+				byte[] letterBytes = letters[nextCell];
+				System.arraycopy(letterBytes, 0, nextKeyBytes, charsLength, letterBytes.length);
+				int nextLength = charsLength + letterBytes.length;
 
+				if (trie != null) {
+					// The trie knows exactly if any word starts with these characters
+					nextTrieNode = trie.step(trieNode, letterBytes, 0, letterBytes.length);
+					proceed = nextTrieNode != PrefixTrie.NO_NODE;
+				} else {
 					// If Bloom is null (user set Bloom to not be used, just emit)
 					// If Bloom is not null, do a membership test and emit
-					proceed = bloomFilter == null ? true : bloomFilter.membershipTest(new Key(newWord.getBytes()));
-					
-					if (proceed) {
-						// It might exist, create new object, add new node, and emit
-						@SuppressWarnings("unchecked")
-						ArrayList<Node> nextNodeList = (ArrayList<Node>) rollGraph.nodes.clone();
-						nextNodeList.add(nextNode);
+					proceed = bloomFilter == null ? true : bloomFilter.membershipTest(nextKeyBytes, nextLength);
+				}
+
+				if (expandedCounters != null) {
+					(proceed ? childrenCounters : prunedCounters)[nextPathLength].increment(1);
+				}
 
-						RollGraphWritable nextGraphWritable = new RollGraphWritable(nextNodeList, false);
+				if (proceed && words != null) {
+					// Write out the word right away and only keep expanding if a longer word can follow
+					rollGraph.addCell(nextCell);
+					writeIfWord(nextKeyBytes, nextLength, nextTrieNode, rollGraph);
+					rollGraph.removeLastCell();
 
-						context.write(new Text(newWord), nextGraphWritable);
+					if (!words.hasLongerWords(nextKeyBytes, nextLength, nextTrieNode)) {
+						// Trie misses are counted here too since the trie prunes exactly
+						dictionaryCounter.increment(1);
+						continue;
+					}
+				}
 
-						// Use counters to keep track of how many words were found so far
-						context.getCounter("boggle", "words").increment(1);
+				if (proceed) {
+					// It might exist, add the new node in place, emit, and take it back out
+					rollGraph.addCell(nextCell);
+					rollGraph.trieNode = nextTrieNode;
+
+					if (depth > 1 && expansionsLeft > 0) {
+						// Expand the child here instead of in the next iteration
+						expansionsLeft--;
+
+						rollGraph.isFinal = true;
+						writeFinal(context, rollGraph);
+
+						if (trie == null || trie.hasChildren(nextTrieNode)) {
+							ensureNextKeyCapacity(nextLength + rolls.getMaxLetterLength());
+							expandChildren(context, nextLength, rollGraph, depth - 1);
+						}
 					} else {
-						// Use counters to keep track of how many words were thrown out by the Bloom Filter
-						context.getCounter("boggle", "bloom").increment(1);
+						// The children are written with the same writable
+						rollGraph.isFinal = false;
 
-						if (logger.isDebugEnabled()) {
-							logger.debug("Throwing out " + newWord + " because it didn't pass membership test");
+						if (canonicalStates) {
+							context.write(getStateKey(rollGraph, nextLength), rollGraph);
+						} else if (tileSize > 0) {
+							// Group the node with the others that end in the same part of the roll
+							tileKey.set(rolls.getRoll(rollGraph.rollId).getTile(nextCell, tileSize));
+							context.write(tileKey, rollGraph);
+						} else {
+							context.write(NullWritable.get(), rollGraph);
 						}
+
+						frontierCounter.increment(1);
+						serializedBytesCounter.increment(rollGraph.getSerializedSize());
+					}
+
+					rollGraph.removeLastCell();
+
+					// Use counters to keep track of how many words were found so far
+					wordsCounter.increment(1);
+				} else {
+					// Use counters to keep track of how many words were thrown out by the Bloom Filter or trie
+					prunedCounter.increment(1);
+
+					if (logger.isDebugEnabled()) {
+						logger.debug("Throwing out " + new String(nextKeyBytes, 0, nextLength)
+								+ " because it didn't pass membership test");
 					}
 				}
 			}
 		}
+
+		rollGraph.trieNode = trieNode;
+	}
+
+	/**
+	 * Looks up the counters for every path length up front
+	 * 
+	 * @param context
+	 *            The context object with the counters
+	 * @param kind
+	 *            The kind of counter
+	 * @return The counters indexed by path length
+	 */
+	private Counter[] getLengthCounters(Context context, String kind) {
+		Counter[] counters = new Counter[TraversalMetrics.MAX_LENGTH + 1];
+
+		for (int length = 1; length <= TraversalMetrics.MAX_LENGTH; length++) {
+			counters[length] = context.getCounter(TraversalMetrics.COUNTER_GROUP,
+					TraversalMetrics.getCounterName(kind, length));
+		}
+
+		return counters;
+	}
+
+	/**
+	 * Gets the state of a frontier node. Nodes with the same state have the same characters and can reach the same
+	 * cells, so the reducer merges them and the next iteration only expands them once.
+	 * 
+	 * @param rollGraph
+	 *            The RollGraphWritable representing the nodes
+	 * @param length
+	 *            The number of bytes in nextKeyBytes making up the node
+	 * @return The state key. Reused for every node.
+	 * @throws IOException
+	 */
+	private BytesWritable getStateKey(RollGraphWritable rollGraph, int length) throws IOException {
+		stateBuffer.reset();
+		rollGraph.writeState(stateBuffer);
+		stateBuffer.write(nextKeyBytes, 0, length);
+
+		stateKey.set(stateBuffer.getData(), 0, stateBuffer.getLength());
+
+		return stateKey;
+	}
+
+	/**
+	 * Makes sure the buffer for the characters of the node being emitted is big enough
+	 * 
+	 * @param capacity
+	 *            The number of bytes needed
+	 */
+	private void ensureNextKeyCapacity(int capacity) {
+		if (nextKeyBytes.length < capacity) {
+			nextKeyBytes = Arrays.copyOf(nextKeyBytes, capacity * 2);
+		}
+	}
+
+	/**
+	 * Writes the characters to the words side output if they are a word in the dictionary
+	 * 
+	 * @param bytes
+	 *            The characters making up the node
+	 * @param length
+	 *            The number of bytes from the start of the array
+	 * @param trieNode
+	 *            The PrefixTrie node for the characters or PrefixTrie.NO_NODE if it hasn't been looked up
+	 * @param rollGraph
+	 *            The RollGraphWritable representing the nodes including the last one
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeIfWord(byte[] bytes, int length, int trieNode, RollGraphWritable rollGraph)
+			throws IOException, InterruptedException {
+		if (length < minimumWordSize || !words.contains(bytes, length, trieNode)) {
+			return;
+		}
+
+		nextKey.set(bytes, 0, length);
+
+		if (batch) {
+			// Group the words by roll like the final job does
+			rollIdWritable.set(rollGraph.rollId);
+			multipleOutputs.write(BoggleDriver.WORDS_NAMED_OUTPUT, rollIdWritable, nextKey);
+		} else {
+			// Write the path as a finished node like the final job would see it
+			boolean isFinal = rollGraph.isFinal;
+			rollGraph.isFinal = true;
+			wordPaths.set(representativePath ? rollGraph : null, rollGraph.pathCount);
+			rollGraph.isFinal = isFinal;
+
+			multipleOutputs.write(BoggleDriver.WORDS_NAMED_OUTPUT, nextKey, wordPaths);
+		}
+
+		finalWordsCounter.increment(rollGraph.pathCount);
+	}
+
+	/**
+	 * Emits a node whose children have been traversed
+	 * 
+	 * @param context
+	 *            The context object for emitting
+	 * @param rollGraph
+	 *            The RollGraphWritable representing the nodes
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeFinal(Context context, RollGraphWritable rollGraph) throws IOException, InterruptedException {
+		if (words != null) {
+			// The node was already checked when it was written so it isn't needed anymore
+			return;
+		} else if (multipleOutputs != null) {
+			// Keep finished nodes out of the next iteration's input
+			multipleOutputs.write(BoggleDriver.FINAL_NAMED_OUTPUT, NullWritable.get(), rollGraph);
+		} else {
+			context.write(NullWritable.get(), rollGraph);
+		}
+
+		// The driver compares these to the bytes in the files for the compression ratio
+		serializedBytesCounter.increment(rollGraph.getSerializedSize());
 	}
 }
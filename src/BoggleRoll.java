@@ -1,7 +1,17 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
 
+import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
 /**
  * Represents a roll in Boggle.
  * 
@@ -47,14 +57,22 @@ public class BoggleRoll {
 	/** The version used for this Boggle Roll */
 	private int version;
 
+	/** The cells next to every cell indexed by cell. Built the first time they're needed. */
+	private int[][] neighbors;
+
+	/** The letters of every cell as bytes indexed by cell. Built the first time they're needed. */
+	private byte[][] letterBytes;
+
 	/**
 	 * Private constructor. Use static initializers.
 	 * 
 	 * @param version
 	 *            The version or size of the dice to use. A version >5 will create a random version with a dimension of
 	 *            version x version.
+	 * @param random
+	 *            The random number generator for the random version's dice
 	 */
-	private BoggleRoll(int version) {
+	private BoggleRoll(int version, Random random) {
 		this.version = version;
 		
 		if (version == NEW_VERSION) {
@@ -64,7 +82,7 @@ public class BoggleRoll {
 		} else if (version == BIG_BOGGLE_VERSION) {
 			versionDice = BIG_BOGGLE_VERSION_DICE;
 		} else if (version > 5) {
-			createRandomVersion(version);
+			createRandomVersion(version, random);
 		} else {
 			// Versions 3-5 are not valid sizes because they aren't big enough
 			throw new RuntimeException("The version for the Boggle Roll is not valid.  The version was " + version);
@@ -74,11 +92,9 @@ public class BoggleRoll {
 		rollCharacters = new String[rollSize][rollSize];
 	}
 
-	private void createRandomVersion(int size) {
+	private void createRandomVersion(int size, Random random) {
 		versionDice = new String[size*size];
 		
-		Random random = new Random();
-		
 		// Big Note!
 		// Only the BoggleRoll created by the driver will have the correct version
 		// of the dice.  You could serialize the object out and read it in, but
@@ -99,18 +115,30 @@ public class BoggleRoll {
 	 * @return A Boggle roll
 	 */
 	public static BoggleRoll createRoll(int version) {
+		return createRoll(version, new Random());
+	}
+
+	/**
+	 * Creates a roll of Boggle based on the possible version dice. A seeded random number generator always creates the same roll.
+	 * 
+	 * @param version
+	 *            The version or size of the dice to use. A version >5 will create a random version with a dimension of
+	 *            version x version.
+	 * @param random
+	 *            The random number generator used to roll the dice
+	 * @return A Boggle roll
+	 */
+	public static BoggleRoll createRoll(int version, Random random) {
 		// Shuffle the dice around
 		ArrayList<Integer> diceList = new ArrayList<Integer>();
 
-		BoggleRoll roll = new BoggleRoll(version);
+		BoggleRoll roll = new BoggleRoll(version, random);
 		
 		for (int i = 0; i < roll.versionDice.length; i++) {
 			diceList.add(i);
 		}
 
-		Collections.shuffle(diceList);
-
-		Random random = new Random();
+		Collections.shuffle(diceList, random);
 
 		// Choose a side of the dice
 		for (int i = 0; i < diceList.size(); i++) {
@@ -132,26 +160,231 @@ public class BoggleRoll {
 	}
 
 	/**
-	 * Serializes the Boggle Roll to a string
+	 * Gets the points a word is worth with the standard Boggle scoring. A "qu" die is two characters in the word, so
+	 * it counts as two letters like the rules say.
+	 * 
+	 * @param length
+	 *            The number of characters in the word
+	 * @return The points for the word
+	 */
+	public static int getWordScore(int length) {
+		if (length < 3) {
+			return 0;
+		} else if (length <= 4) {
+			return 1;
+		} else if (length == 5) {
+			return 2;
+		} else if (length == 6) {
+			return 3;
+		} else if (length == 7) {
+			return 5;
+		} else {
+			return 11;
+		}
+	}
+
+	/**
+	 * Gets the cells next to every cell. The cells are indexed as row * rollSize + column and the neighbors of a cell
+	 * are in row order, so the graph can be walked without any bounds checks.
+	 * 
+	 * @return The neighboring cells indexed by cell
+	 */
+	public int[][] getNeighbors() {
+		if (neighbors == null) {
+			int[][] cellNeighbors = new int[rollSize * rollSize][];
+			int[] buffer = new int[8];
+
+			for (int cell = 0; cell < cellNeighbors.length; cell++) {
+				int row = cell / rollSize;
+				int col = cell % rollSize;
+				int count = 0;
+
+				for (int nextRow = Math.max(row - 1, 0); nextRow <= Math.min(row + 1, rollSize - 1); nextRow++) {
+					for (int nextCol = Math.max(col - 1, 0); nextCol <= Math.min(col + 1, rollSize - 1); nextCol++) {
+						if (nextRow != row || nextCol != col) {
+							buffer[count++] = nextRow * rollSize + nextCol;
+						}
+					}
+				}
+
+				cellNeighbors[cell] = Arrays.copyOf(buffer, count);
+			}
+
+			neighbors = cellNeighbors;
+		}
+
+		return neighbors;
+	}
+
+	/**
+	 * Gets the tile of the roll a cell is in. The roll is cut in to square tiles numbered in row order, so a range of
+	 * tiles is a band of rows across the roll.
+	 * 
+	 * @param cell
+	 *            The cell
+	 * @param tileSize
+	 *            The number of rows and columns in every tile
+	 * @return The tile
+	 */
+	public int getTile(int cell, int tileSize) {
+		int tilesPerRow = (rollSize + tileSize - 1) / tileSize;
+
+		return (cell / rollSize / tileSize) * tilesPerRow + (cell % rollSize) / tileSize;
+	}
+
+	/**
+	 * Gets the number of tiles the roll is cut in to. The tiles on the last row and column are smaller if the roll
+	 * doesn't divide evenly.
+	 * 
+	 * @param tileSize
+	 *            The number of rows and columns in every tile
+	 * @return The number of tiles
+	 */
+	public int getTileCount(int tileSize) {
+		int tilesPerRow = (rollSize + tileSize - 1) / tileSize;
+
+		return tilesPerRow * tilesPerRow;
+	}
+
+	/**
+	 * Gets the letters of every cell as bytes. The "qu" die takes two bytes.
+	 * 
+	 * @return The letters indexed by cell
+	 */
+	public byte[][] getLetterBytes() {
+		if (letterBytes == null) {
+			byte[][] cellLetters = new byte[rollSize * rollSize][];
+
+			for (int cell = 0; cell < cellLetters.length; cell++) {
+				cellLetters[cell] = rollCharacters[cell / rollSize][cell % rollSize].getBytes();
+			}
+
+			letterBytes = cellLetters;
+		}
+
+		return letterBytes;
+	}
+
+	/**
+	 * Writes the roll in its compact binary form. A cell with a single letter takes a byte.
+	 * 
+	 * @param out
+	 *            The output to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, version);
+
+		for (byte[] letters : getLetterBytes()) {
+			if (letters.length == 1) {
+				out.writeByte(letters[0]);
+			} else {
+				// Letters are always positive so a negative length marks the "qu" die
+				out.writeByte(-letters.length);
+				out.write(letters);
+			}
+		}
+	}
+
+	/**
+	 * Reads a roll written in its compact binary form
+	 * 
+	 * @param in
+	 *            The input to read from
+	 * @return The roll
+	 * @throws IOException
+	 */
+	public static BoggleRoll read(DataInput in) throws IOException {
+		BoggleRoll roll = new BoggleRoll(WritableUtils.readVInt(in), new Random());
+
+		for (int cell = 0; cell < roll.rollSize * roll.rollSize; cell++) {
+			byte length = in.readByte();
+			byte[] letters;
+
+			if (length >= 0) {
+				letters = new byte[] { length };
+			} else {
+				letters = new byte[-length];
+				in.readFully(letters);
+			}
+
+			roll.rollCharacters[cell / roll.rollSize][cell % roll.rollSize] = new String(letters, "US-ASCII");
+		}
+
+		return roll;
+	}
+
+	/**
+	 * Serializes the roll to its compact binary form
+	 * 
+	 * @return The bytes of the roll
+	 */
+	public byte[] toBytes() {
+		DataOutputBuffer buffer = new DataOutputBuffer();
+
+		try {
+			write(buffer);
+		} catch (IOException e) {
+			// Writing to memory doesn't throw
+			throw new RuntimeException(e);
+		}
+
+		return Arrays.copyOf(buffer.getData(), buffer.getLength());
+	}
+
+	/**
+	 * Deserializes a roll from its compact binary form
+	 * 
+	 * @param bytes
+	 *            The bytes of the roll
+	 * @param length
+	 *            The number of bytes from the start of the array
+	 * @return The roll
+	 * @throws IOException
+	 */
+	public static BoggleRoll fromBytes(byte[] bytes, int length) throws IOException {
+		DataInputBuffer buffer = new DataInputBuffer();
+		buffer.reset(bytes, length);
+
+		return read(buffer);
+	}
+
+	/**
+	 * Serializes the Boggle Roll to a string. The string is the compact binary form in Base64 so it can go in the
+	 * configuration.
 	 * 
 	 * @return A string representation of the roll
 	 */
 	public String serialize() {
-		return toString();
+		try {
+			return new String(Base64.encodeBase64(toBytes()), "US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
-	 * Deserializes the Boggle Roll from a string
+	 * Deserializes the Boggle Roll from a string. Rolls serialized as the comma separated letters by older versions
+	 * can still be read.
 	 * 
 	 * @param rollString
 	 *            The string representation of the roll
 	 * @return The roll object based on the string
 	 */
 	public static BoggleRoll deserialize(String rollString) {
+		if (rollString.indexOf(',') == -1) {
+			try {
+				byte[] bytes = Base64.decodeBase64(rollString.getBytes("US-ASCII"));
+				return fromBytes(bytes, bytes.length);
+			} catch (IOException e) {
+				throw new RuntimeException("Could not deserialize the roll", e);
+			}
+		}
+
 		// Split the roll in to lines for the rows
 		String[] lines = rollString.split("\n");
 
-		BoggleRoll roll = new BoggleRoll(Integer.parseInt(lines[0]));
+		BoggleRoll roll = new BoggleRoll(Integer.parseInt(lines[0]), new Random());
 
 		for (int i = 1; i < lines.length; i++) {
 			// Split the row in to columns
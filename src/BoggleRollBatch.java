@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Creates and reads a batch of Boggle rolls. The batch is a SequenceFile with the roll id as the key and the roll in
+ * its compact binary form as the value. Roll ids start at 0 and are the roll's position in the file. Batches written
+ * by older versions with the rolls as text can still be read.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleRollBatch {
+	public static void main(String args[]) {
+		try {
+			if (args.length != 2 && args.length != 3) {
+				System.out.println("Usage <numberofrolls> <pathtobatchfile> [rollversion]");
+				return;
+			}
+
+			int numberOfRolls = Integer.parseInt(args[0]);
+			String batchFile = args[1];
+			int version = args.length == 3 ? Integer.parseInt(args[2]) : BoggleDriver.ROLL_VERSION_DEFAULT;
+
+			System.out.println("Creating " + numberOfRolls + " rolls of version " + version + " outputting to "
+					+ batchFile);
+
+			ArrayList<BoggleRoll> rolls = new ArrayList<BoggleRoll>();
+
+			for (int i = 0; i < numberOfRolls; i++) {
+				rolls.add(BoggleRoll.createRoll(version));
+			}
+
+			write(new Configuration(), new Path(batchFile), rolls);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes out a batch of rolls
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param path
+	 *            The batch file to write
+	 * @param rolls
+	 *            The rolls to write in roll id order
+	 * @throws IOException
+	 */
+	public static void write(Configuration configuration, Path path, ArrayList<BoggleRoll> rolls) throws IOException {
+		FileSystem fileSystem = FileSystem.get(configuration);
+
+		SequenceFile.Writer writer = SequenceFile.createWriter(fileSystem, configuration, path, IntWritable.class,
+				BytesWritable.class);
+
+		try {
+			for (int i = 0; i < rolls.size(); i++) {
+				writer.append(new IntWritable(i), new BytesWritable(rolls.get(i).toBytes()));
+			}
+		} finally {
+			IOUtils.closeStream(writer);
+		}
+	}
+
+	/**
+	 * Reads in a batch of rolls
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param path
+	 *            The batch file to read
+	 * @return The rolls in roll id order
+	 * @throws IOException
+	 */
+	public static ArrayList<BoggleRoll> read(Configuration configuration, Path path) throws IOException {
+		FileSystem fileSystem = FileSystem.get(configuration);
+
+		ArrayList<BoggleRoll> rolls = new ArrayList<BoggleRoll>();
+
+		SequenceFile.Reader reader = new SequenceFile.Reader(fileSystem, path, configuration);
+
+		try {
+			IntWritable rollId = new IntWritable();
+			boolean text = reader.getValueClass() == Text.class;
+			Text rollString = new Text();
+			BytesWritable rollBytes = new BytesWritable();
+
+			while (text ? reader.next(rollId, rollString) : reader.next(rollId, rollBytes)) {
+				if (rollId.get() != rolls.size()) {
+					throw new IOException("Roll ids in " + path + " must start at 0 and be in order.  Found "
+							+ rollId.get() + " expected " + rolls.size());
+				}
+
+				if (text) {
+					rolls.add(BoggleRoll.deserialize(rollString.toString()));
+				} else {
+					rolls.add(BoggleRoll.fromBytes(rollBytes.getBytes(), rollBytes.getLength()));
+				}
+			}
+		} finally {
+			IOUtils.closeStream(reader);
+		}
+
+		return rolls;
+	}
+}
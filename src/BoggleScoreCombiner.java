@@ -0,0 +1,46 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Adds up the scores for a roll and keeps only its best words before the shuffle.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleScoreCombiner extends Reducer<IntWritable, WordScoresWritable, IntWritable, WordScoresWritable> {
+	/** The merged scores to emit */
+	private WordScoresWritable merged = new WordScoresWritable();
+
+	/** The number of best words to keep for every roll */
+	private int topWords;
+
+	@Override
+	public void setup(Context context) {
+		topWords = context.getConfiguration().getInt(BoggleDriver.TOP_WORDS_PARAM, BoggleDriver.TOP_WORDS_DEFAULT);
+	}
+
+	@Override
+	public void reduce(IntWritable key, Iterable<WordScoresWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(key, merge(values));
+	}
+
+	/**
+	 * Merges all scores for a roll
+	 * 
+	 * @param values
+	 *            The scores for the roll
+	 * @return The merged scores. Reused for every roll.
+	 */
+	protected WordScoresWritable merge(Iterable<WordScoresWritable> values) {
+		merged.clear();
+
+		for (WordScoresWritable value : values) {
+			merged.merge(value, topWords);
+		}
+
+		return merged;
+	}
+}
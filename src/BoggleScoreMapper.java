@@ -0,0 +1,60 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Scores the unique words written by the final job. A single roll has a line per word and a batch has a line per roll
+ * with all of its words.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleScoreMapper extends Mapper<LongWritable, Text, IntWritable, WordScoresWritable> {
+	/** If a batch of rolls is being scored */
+	private boolean batch;
+
+	/** The number of best words to keep for every roll */
+	private int topWords;
+
+	/** The roll id to emit */
+	private IntWritable rollId = new IntWritable();
+
+	/** The scores to emit */
+	private WordScoresWritable scores = new WordScoresWritable();
+
+	@Override
+	public void setup(Context context) throws IOException {
+		Configuration configuration = context.getConfiguration();
+
+		batch = configuration.get(BoggleDriver.BATCH_PARAM) != null;
+		topWords = configuration.getInt(BoggleDriver.TOP_WORDS_PARAM, BoggleDriver.TOP_WORDS_DEFAULT);
+	}
+
+	@Override
+	public void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+		String[] fields = value.toString().split("\t");
+
+		scores.clear();
+
+		if (batch) {
+			// The roll id, the number of unique words and the words
+			rollId.set(Integer.parseInt(fields[0]));
+
+			if (fields.length > 2) {
+				for (String word : fields[2].split(",")) {
+					scores.add(word, topWords);
+				}
+			}
+		} else {
+			// The word, the number of paths and the representative path
+			rollId.set(0);
+			scores.add(fields[0], topWords);
+		}
+
+		context.write(rollId, scores);
+	}
+}
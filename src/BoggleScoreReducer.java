@@ -0,0 +1,20 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+
+/**
+ * Emits the total score, the number of words and the best words for every roll.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleScoreReducer extends BoggleScoreCombiner {
+	@Override
+	public void reduce(IntWritable key, Iterable<WordScoresWritable> values, Context context) throws IOException,
+			InterruptedException {
+		WordScoresWritable scores = merge(values);
+		context.write(key, scores);
+
+		context.getCounter("boggle", "score").increment(scores.getTotalScore());
+	}
+}
@@ -0,0 +1,380 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Solves rolls as they arrive instead of running the jobs for every roll. The dictionary is loaded in to a trie once
+ * when the service starts and a pool of workers solves the rolls in memory with it. Every roll is a file dropped in
+ * to the input directory and its words are written to a file with the same name in the output directory as soon as
+ * it's solved. The latency percentiles of the rolls are logged as they're solved.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleSolverService extends Configured implements Tool {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The directory in the input directory the solved rolls are moved to */
+	public static final String SOLVED_DIRECTORY = "_solved";
+
+	/** The directory in the input directory the rolls that couldn't be solved are moved to */
+	public static final String FAILED_DIRECTORY = "_failed";
+
+	/** The number of most recent latencies the percentiles are taken from */
+	private static final int LATENCY_WINDOW = 10000;
+
+	/** The prefix trie with the dictionary. Shared by every worker. */
+	private PrefixTrie trie;
+
+	/** The configuration the rolls are solved with */
+	private Configuration solverConfiguration;
+
+	/** The filesystem object */
+	private FileSystem fileSystem;
+
+	/** The directory the rolls arrive in */
+	private Path inputPath;
+
+	/** The directory the words are written to */
+	private Path outputPath;
+
+	/** If a path is written with every word */
+	private boolean representativePath;
+
+	/** The workers that solve the rolls */
+	private ExecutorService workers;
+
+	/** The rolls that were handed to the workers and are still in the input directory */
+	private Set<Path> pending = Collections.synchronizedSet(new HashSet<Path>());
+
+	/** The rolls that were moved out of the input directory since before the last listing */
+	private Set<Path> solved = Collections.synchronizedSet(new HashSet<Path>());
+
+	/** The latencies of the most recent rolls in milliseconds. Used as a ring buffer. */
+	private long[] latencies = new long[LATENCY_WINDOW];
+
+	/** The number of rolls solved */
+	private long solvedRolls;
+
+	/** The number of rolls that couldn't be solved */
+	private long failedRolls;
+
+	/** The number of rolls solved between latency reports */
+	private int reportRolls;
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out.println("Usage: BoggleSolverService <dictionary> <input dir> <output dir>");
+			return -1;
+		}
+
+		// Only output the service's logging like the driver
+		Logger.getLogger("Boggle").setLevel(Level.INFO);
+		Logger.getRootLogger().setLevel(Level.ERROR);
+
+		Configuration configuration = getConf();
+		configuration.set(BoggleDriver.DICTIONARY_PARAM, args[0]);
+
+		fileSystem = FileSystem.get(configuration);
+		inputPath = new Path(args[1]);
+		outputPath = new Path(args[2]);
+
+		if (!fileSystem.exists(inputPath)) {
+			System.out.println("Could not find input directory");
+			return -1;
+		}
+
+		fileSystem.mkdirs(outputPath);
+		fileSystem.mkdirs(new Path(inputPath, SOLVED_DIRECTORY));
+		fileSystem.mkdirs(new Path(inputPath, FAILED_DIRECTORY));
+
+		// Loading the dictionary is only paid once instead of for every roll
+		long startTime = System.currentTimeMillis();
+		trie = BoggleLocalSolver.loadTrie(configuration);
+
+		logger.info("Loaded the dictionary in " + (System.currentTimeMillis() - startTime) + " ms.");
+
+		// The workers already solve the rolls in parallel so every roll is searched by the worker that took it
+		solverConfiguration = new Configuration(configuration);
+		solverConfiguration.setInt(BoggleDriver.LOCAL_SOLVER_THREADS_PARAM, 1);
+
+		representativePath = configuration.getBoolean(BoggleDriver.REPRESENTATIVE_PATH_PARAM,
+				BoggleDriver.REPRESENTATIVE_PATH_DEFAULT);
+		reportRolls = Math.max(1, configuration.getInt(BoggleDriver.SERVICE_REPORT_ROLLS_PARAM,
+				BoggleDriver.SERVICE_REPORT_ROLLS_DEFAULT));
+
+		int threads = configuration.getInt(BoggleDriver.SERVICE_THREADS_PARAM, Runtime.getRuntime()
+				.availableProcessors());
+		long pollMillis = configuration.getLong(BoggleDriver.SERVICE_POLL_MILLIS_PARAM,
+				BoggleDriver.SERVICE_POLL_MILLIS_DEFAULT);
+		int maxRolls = configuration.getInt(BoggleDriver.SERVICE_MAX_ROLLS_PARAM,
+				BoggleDriver.SERVICE_MAX_ROLLS_DEFAULT);
+
+		workers = Executors.newFixedThreadPool(threads);
+
+		logger.info("Solving the rolls in " + inputPath + " with " + threads + " workers.");
+
+		long submittedRolls = 0;
+
+		try {
+			while (true) {
+				// A worker can move a roll out after the directory is listed but before the roll is checked against
+				// pending, so the listing still has it. The rolls moved before the listing started are already gone
+				// from it, so only the ones moved since can be stale and they're forgotten after the next listing.
+				Set<Path> solvedBeforeListing;
+
+				synchronized (solved) {
+					solvedBeforeListing = new HashSet<Path>(solved);
+				}
+
+				for (FileStatus status : listRolls()) {
+					if (maxRolls > 0 && submittedRolls >= maxRolls) {
+						break;
+					}
+
+					Path rollPath = status.getPath();
+
+					if (solved.contains(rollPath) && !solvedBeforeListing.contains(rollPath)) {
+						continue;
+					}
+
+					// The roll stays in the input directory until it's solved so skip it on the next looks
+					if (pending.add(rollPath)) {
+						submit(rollPath);
+						submittedRolls++;
+					}
+				}
+
+				solved.removeAll(solvedBeforeListing);
+
+				if (maxRolls > 0 && submittedRolls >= maxRolls) {
+					break;
+				}
+
+				Thread.sleep(pollMillis);
+			}
+		} finally {
+			// Finish the rolls that were already taken
+			workers.shutdown();
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		reportLatencies();
+
+		return failedRolls == 0 ? 0 : 1;
+	}
+
+	/**
+	 * Lists the rolls waiting in the input directory with the oldest first. Files starting with "_" or "." are
+	 * skipped so a roll can be written under a hidden name and renamed once it's complete.
+	 * 
+	 * @return The rolls
+	 * @throws IOException
+	 */
+	private FileStatus[] listRolls() throws IOException {
+		FileStatus[] statuses = fileSystem.listStatus(inputPath, new PathFilter() {
+			@Override
+			public boolean accept(Path path) {
+				return !path.getName().startsWith("_") && !path.getName().startsWith(".");
+			}
+		});
+
+		Arrays.sort(statuses, new Comparator<FileStatus>() {
+			@Override
+			public int compare(FileStatus status1, FileStatus status2) {
+				if (status1.getModificationTime() != status2.getModificationTime()) {
+					return status1.getModificationTime() < status2.getModificationTime() ? -1 : 1;
+				}
+
+				return status1.getPath().getName().compareTo(status2.getPath().getName());
+			}
+		});
+
+		return statuses;
+	}
+
+	/**
+	 * Hands a roll to the workers. The latency is measured from now until its words are written.
+	 * 
+	 * @param rollPath
+	 *            The path to the roll
+	 */
+	private void submit(final Path rollPath) {
+		final long arrivalTime = System.currentTimeMillis();
+
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				solve(rollPath, arrivalTime);
+			}
+		});
+	}
+
+	/**
+	 * Solves a roll and writes out its words. The roll is moved out of the input directory once it's done.
+	 * 
+	 * @param rollPath
+	 *            The path to the roll
+	 * @param arrivalTime
+	 *            The time the service found the roll
+	 */
+	private void solve(Path rollPath, long arrivalTime) {
+		String name = rollPath.getName();
+
+		try {
+			BoggleRoll roll = readRoll(rollPath);
+			List<BoggleLocalSolver.WordPath> words = new BoggleLocalSolver(solverConfiguration, roll, trie).solve();
+
+			// Write to a hidden file first so the words only show up once all of them are written
+			Path tempPath = new Path(outputPath, "_" + name);
+			Writer writer = new OutputStreamWriter(fileSystem.create(tempPath, true), "UTF-8");
+			long uniqueWords;
+
+			try {
+				uniqueWords = BoggleLocalSolver.writeWords(words, representativePath, writer);
+			} finally {
+				writer.close();
+			}
+
+			moveTo(tempPath, new Path(outputPath, name));
+			moveTo(rollPath, new Path(new Path(inputPath, SOLVED_DIRECTORY), name));
+
+			long latency = System.currentTimeMillis() - arrivalTime;
+
+			logger.info("Solved " + name + " in " + latency + " ms.  Found " + words.size() + " total words and "
+					+ uniqueWords + " unique words.");
+
+			addLatency(latency);
+		} catch (Exception e) {
+			logger.error("Could not solve " + rollPath, e);
+
+			synchronized (this) {
+				failedRolls++;
+			}
+
+			try {
+				moveTo(rollPath, new Path(new Path(inputPath, FAILED_DIRECTORY), name));
+			} catch (IOException moveException) {
+				logger.error("Could not move " + rollPath + " out of the input directory", moveException);
+			}
+		} finally {
+			// The roll has to be marked as solved before it's taken out of pending so the loop always skips it
+			solved.add(rollPath);
+			pending.remove(rollPath);
+		}
+	}
+
+	/**
+	 * Reads a roll. The file has the roll as written by BoggleRoll.serialize or as printed by the driver.
+	 * 
+	 * @param rollPath
+	 *            The path to the roll
+	 * @return The roll
+	 * @throws IOException
+	 */
+	private BoggleRoll readRoll(Path rollPath) throws IOException {
+		InputStream inputStream = fileSystem.open(rollPath);
+
+		try {
+			byte[] bytes = new byte[(int) fileSystem.getFileStatus(rollPath).getLen()];
+			IOUtils.readFully(inputStream, bytes, 0, bytes.length);
+
+			return BoggleRoll.deserialize(new String(bytes, "UTF-8").trim());
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Moves a file, replacing the file that's already there. A roll with the same name can be solved again.
+	 * 
+	 * @param source
+	 *            The file to move
+	 * @param destination
+	 *            The path to move it to
+	 * @throws IOException
+	 */
+	private void moveTo(Path source, Path destination) throws IOException {
+		fileSystem.delete(destination, false);
+
+		if (!fileSystem.rename(source, destination)) {
+			throw new IOException("Could not move " + source + " to " + destination);
+		}
+	}
+
+	/**
+	 * Adds the latency of a solved roll and logs the percentiles every time enough rolls are solved
+	 * 
+	 * @param latency
+	 *            The milliseconds from finding the roll to writing its words
+	 */
+	private synchronized void addLatency(long latency) {
+		latencies[(int) (solvedRolls % LATENCY_WINDOW)] = latency;
+		solvedRolls++;
+
+		if (solvedRolls % reportRolls == 0) {
+			reportLatencies();
+		}
+	}
+
+	/**
+	 * Logs the percentiles of the most recent latencies
+	 */
+	private synchronized void reportLatencies() {
+		int count = (int) Math.min(solvedRolls, LATENCY_WINDOW);
+
+		if (count == 0) {
+			logger.info("Solved 0 rolls with " + failedRolls + " failures.");
+			return;
+		}
+
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+
+		logger.info("Solved " + solvedRolls + " rolls with " + failedRolls + " failures.  Latency of the last "
+				+ count + " rolls: 50th percentile " + getPercentile(sorted, 50) + " ms, 90th percentile "
+				+ getPercentile(sorted, 90) + " ms, 99th percentile " + getPercentile(sorted, 99) + " ms, max "
+				+ sorted[count - 1] + " ms.");
+	}
+
+	/**
+	 * Gets a percentile with the nearest rank
+	 * 
+	 * @param sorted
+	 *            The sorted latencies
+	 * @param percentile
+	 *            The percentile to get
+	 * @return The latency at the percentile
+	 */
+	private static long getPercentile(long[] sorted, int percentile) {
+		return sorted[Math.max(0, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1)];
+	}
+
+	public static void main(String[] args) throws Exception {
+		int exitCode = ToolRunner.run(new Configuration(), new BoggleSolverService(), args);
+		System.exit(exitCode);
+	}
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * Merges the equivalent frontier nodes written by a map task before the shuffle. The nodes are keyed by their state so
+ * every group has the same children to expand.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleStateCombiner extends Reducer<BytesWritable, RollGraphWritable, BytesWritable, RollGraphWritable> {
+	/** The merged node to emit */
+	private RollGraphWritable merged = new RollGraphWritable();
+
+	@Override
+	public void reduce(BytesWritable key, Iterable<RollGraphWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(key, merge(values, merged, context));
+	}
+
+	/**
+	 * Merges all nodes for a state
+	 * 
+	 * @param values
+	 *            The equivalent nodes
+	 * @param merged
+	 *            The writable to merge the nodes in to
+	 * @param context
+	 *            The context object for incrementing
+	 * @return The merged node
+	 */
+	static RollGraphWritable merge(Iterable<RollGraphWritable> values, RollGraphWritable merged,
+			TaskInputOutputContext<?, ?, ?, ?> context) {
+		boolean first = true;
+		long mergedNodes = 0;
+		long serializedBytes = 0;
+
+		for (RollGraphWritable value : values) {
+			serializedBytes += value.getSerializedSize();
+
+			if (first) {
+				merged.set(value);
+				first = false;
+			} else {
+				merged.merge(value);
+				mergedNodes++;
+			}
+		}
+
+		context.getCounter("boggle", "mergedstates").increment(mergedNodes);
+
+		// The mapper counted every node it wrote but only the merged node is written out
+		context.getCounter("boggle", "serializedbytes").increment(merged.getSerializedSize() - serializedBytes);
+
+		return merged;
+	}
+}
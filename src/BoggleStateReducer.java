@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Writes every frontier state once for the next iteration with the number of paths that reached it. The state key
+ * isn't needed anymore so the nodes are written with a NullWritable key like the map only iterations.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleStateReducer extends Reducer<BytesWritable, RollGraphWritable, NullWritable, RollGraphWritable> {
+	/** The merged node to emit */
+	private RollGraphWritable merged = new RollGraphWritable();
+
+	@Override
+	public void reduce(BytesWritable key, Iterable<RollGraphWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(NullWritable.get(), BoggleStateCombiner.merge(values, merged, context));
+	}
+}
@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Writes the frontier nodes grouped by the tile of the roll their last cell is in. Every reducer gets a range of
+ * tiles, so the next iteration's splits each cover a band of the roll instead of nodes from all over it. The tile key
+ * isn't needed anymore so the nodes are written with a NullWritable key like the map only iterations.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleTileReducer extends Reducer<IntWritable, RollGraphWritable, NullWritable, RollGraphWritable> {
+	@Override
+	public void reduce(IntWritable key, Iterable<RollGraphWritable> values, Context context) throws IOException,
+			InterruptedException {
+		for (RollGraphWritable value : values) {
+			context.write(NullWritable.get(), value);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Collapses the paths for the same word in to one count and representative path before the shuffle.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleWordCombiner extends Reducer<Text, WordPathsWritable, Text, WordPathsWritable> {
+	/** The merged paths to emit */
+	private WordPathsWritable merged = new WordPathsWritable();
+
+	@Override
+	public void reduce(Text key, Iterable<WordPathsWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(key, merge(values));
+	}
+
+	/**
+	 * Merges all paths for a word
+	 * 
+	 * @param values
+	 *            The paths for the word
+	 * @return The merged paths. Reused for every word.
+	 */
+	protected WordPathsWritable merge(Iterable<WordPathsWritable> values) {
+		merged.clear();
+
+		for (WordPathsWritable value : values) {
+			merged.merge(value);
+		}
+
+		return merged;
+	}
+}
@@ -0,0 +1,19 @@
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Emits every unique word once with the number of paths it was found along and a representative path.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class BoggleWordReducer extends BoggleWordCombiner {
+	@Override
+	public void reduce(Text key, Iterable<WordPathsWritable> values, Context context) throws IOException,
+			InterruptedException {
+		context.write(key, merge(values));
+
+		context.getCounter("boggle", "uniquewords").increment(1);
+	}
+}
@@ -0,0 +1,470 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A sorted set of dictionary words compiled by DictionaryCompiler. The words are front coded in buckets. Each bucket
+ * starts with a whole word and every other word only stores the letters that differ from the word before it.
+ * 
+ * A lookup binary searches the first words of the buckets and then scans one bucket. The scan compares the key with
+ * the stored letters directly so nothing is decoded or allocated. Like the trie, the file can be memory mapped.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class CompiledDictionary {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The first bytes of a compiled dictionary ("BDIC") */
+	private static final int MAGIC = 0x42444943;
+
+	/** The version of the compiled dictionary */
+	private static final int VERSION = 1;
+
+	/** The number of words in every bucket */
+	private static final int BUCKET_SIZE = 16;
+
+	/** The number of bytes before the bucket offsets */
+	private static final int HEADER_SIZE = 16;
+
+	/** The longest word that can be stored. Lengths are stored in a byte. */
+	public static final int MAX_WORD_LENGTH = 255;
+
+	/** The number of words */
+	private int wordCount;
+
+	/** The number of buckets */
+	private int bucketCount;
+
+	/** The position of the first bucket */
+	private int dataStart;
+
+	/** The compiled dictionary */
+	private ByteBuffer buffer;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param buffer
+	 *            The compiled dictionary
+	 * @throws IOException
+	 */
+	private CompiledDictionary(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("The dictionary isn't compiled.  Run DictionaryCompiler on it first.");
+		}
+
+		int version = buffer.getInt(4);
+
+		if (version != VERSION) {
+			throw new IOException("The compiled dictionary version is not supported.  The version was " + version);
+		}
+
+		wordCount = buffer.getInt(8);
+		bucketCount = buffer.getInt(12);
+		dataStart = HEADER_SIZE + bucketCount * 4;
+	}
+
+	/**
+	 * Opens the dictionary in the configuration. The dictionary is memory mapped if it was shipped with the
+	 * distributed cache, otherwise it is read from the filesystem. A plain text dictionary is compiled in memory.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @return The dictionary
+	 * @throws IOException
+	 */
+	public static CompiledDictionary open(Configuration configuration) throws IOException {
+		File cachedFile = DistributedCacheFiles.getLocalFile(configuration, BoggleDriver.DICTIONARY_PARAM);
+
+		if (cachedFile != null) {
+			return map(cachedFile);
+		}
+
+		FileSystem fileSystem = FileSystem.get(configuration);
+		Path path = new Path(configuration.get(BoggleDriver.DICTIONARY_PARAM));
+
+		if (!isCompiled(fileSystem, path)) {
+			logger.warn("Compiling the dictionary " + path + " in memory.  Run DictionaryCompiler on it to skip this.");
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			write(DictionaryCompiler.readWords(fileSystem, path), new DataOutputStream(bytes));
+
+			return new CompiledDictionary(ByteBuffer.wrap(bytes.toByteArray()));
+		}
+
+		return load(fileSystem, path);
+	}
+
+	/**
+	 * Reads a compiled dictionary on to the heap
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path to the compiled dictionary
+	 * @return The dictionary
+	 * @throws IOException
+	 */
+	public static CompiledDictionary load(FileSystem fileSystem, Path path) throws IOException {
+		byte[] bytes = new byte[(int) fileSystem.getFileStatus(path).getLen()];
+
+		DataInputStream inputStream = fileSystem.open(path);
+
+		try {
+			IOUtils.readFully(inputStream, bytes, 0, bytes.length);
+		} finally {
+			inputStream.close();
+		}
+
+		return new CompiledDictionary(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Memory maps a compiled dictionary read only
+	 * 
+	 * @param file
+	 *            The local compiled dictionary
+	 * @return The dictionary
+	 * @throws IOException
+	 */
+	public static CompiledDictionary map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			// The mapping stays valid after the file is closed
+			return new CompiledDictionary(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					randomAccessFile.length()));
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Checks if a file is a compiled dictionary instead of a plain text one
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path to the dictionary
+	 * @return If the dictionary is compiled
+	 * @throws IOException
+	 */
+	public static boolean isCompiled(FileSystem fileSystem, Path path) throws IOException {
+		if (fileSystem.getFileStatus(path).getLen() < HEADER_SIZE) {
+			return false;
+		}
+
+		FSDataInputStream inputStream = fileSystem.open(path);
+
+		try {
+			return inputStream.readInt() == MAGIC;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Writes out the words as a compiled dictionary
+	 * 
+	 * @param words
+	 *            The normalized words sorted without duplicates
+	 * @param out
+	 *            The output to write to
+	 * @throws IOException
+	 */
+	public static void write(List<String> words, DataOutput out) throws IOException {
+		int bucketCount = (words.size() + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		int[] bucketOffsets = new int[bucketCount];
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		String previous = "";
+
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+			int shared = 0;
+
+			if (i % BUCKET_SIZE == 0) {
+				// Buckets start with the whole word so they can be searched on their own
+				bucketOffsets[i / BUCKET_SIZE] = data.size();
+			} else {
+				while (shared < previous.length() && shared < word.length()
+						&& previous.charAt(shared) == word.charAt(shared)) {
+					shared++;
+				}
+			}
+
+			data.write(shared);
+			data.write(word.length() - shared);
+
+			for (int j = shared; j < word.length(); j++) {
+				data.write(word.charAt(j));
+			}
+
+			previous = word;
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(words.size());
+		out.writeInt(bucketCount);
+
+		for (int bucketOffset : bucketOffsets) {
+			out.writeInt(bucketOffset);
+		}
+
+		out.write(data.toByteArray());
+	}
+
+	/**
+	 * Checks if the bytes are a word in the dictionary
+	 * 
+	 * @param bytes
+	 *            The letters to check
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters
+	 * @return If the letters are a word
+	 */
+	public boolean contains(byte[] bytes, int offset, int length) {
+		return search(bytes, offset, length, false);
+	}
+
+	/**
+	 * Checks if any word in the dictionary starts with the bytes and has more letters
+	 * 
+	 * @param bytes
+	 *            The letters to check
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters
+	 * @return If a longer word starts with the letters
+	 */
+	public boolean hasLongerWords(byte[] bytes, int offset, int length) {
+		return search(bytes, offset, length, true);
+	}
+
+	/**
+	 * Looks for the key or the first word after it
+	 * 
+	 * @param bytes
+	 *            The key
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters
+	 * @param longer
+	 *            True to check if the first word after the key starts with it, false to check for the key itself
+	 * @return If the word was found
+	 */
+	private boolean search(byte[] bytes, int offset, int length, boolean longer) {
+		// Find the last bucket starting with a word that comes before the key
+		int low = 0;
+		int high = bucketCount - 1;
+		int bucket = -1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareFirstWord(middle, bytes, offset, length);
+
+			if (comparison == 0) {
+				if (!longer) {
+					return true;
+				}
+
+				// The words after the key are in the same bucket or the first word of the next one
+				bucket = middle;
+				break;
+			} else if (comparison < 0) {
+				bucket = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		if (bucket == -1) {
+			// The key comes before every word
+			return longer && firstWordStartsWith(0, bytes, offset, length);
+		}
+
+		int position = dataStart + getBucketOffset(bucket);
+		int end = bucket + 1 < bucketCount ? dataStart + getBucketOffset(bucket + 1) : buffer.limit();
+
+		// The number of letters the word before shares with the key. That word always comes before the key.
+		int matched = 0;
+
+		while (position < end) {
+			int shared = buffer.get(position) & 0xff;
+			int suffixLength = buffer.get(position + 1) & 0xff;
+			int suffixStart = position + 2;
+
+			position = suffixStart + suffixLength;
+
+			if (shared < matched) {
+				// The word differs from the one before where that one still matched the key, so it's after the key
+				return false;
+			} else if (shared > matched) {
+				// The word differs from the key in the same place the one before did, so it's still before the key
+				continue;
+			}
+
+			int i = 0;
+
+			while (i < suffixLength && matched < length && buffer.get(suffixStart + i) == bytes[offset + matched]) {
+				i++;
+				matched++;
+			}
+
+			if (i == suffixLength) {
+				if (matched == length && !longer) {
+					return true;
+				}
+
+				// The word is a prefix of the key or the key itself so it doesn't come after the key
+				continue;
+			}
+
+			if (matched == length) {
+				// The word comes after the key and starts with it
+				return longer;
+			} else if ((buffer.get(suffixStart + i) & 0xff) > (bytes[offset + matched] & 0xff)) {
+				// The word comes after the key
+				return false;
+			}
+		}
+
+		// Every word in the bucket comes before the key so the next bucket starts with the first word after it
+		return longer && bucket + 1 < bucketCount && firstWordStartsWith(bucket + 1, bytes, offset, length);
+	}
+
+	/**
+	 * Checks if the first word in a bucket starts with a key and has more letters
+	 * 
+	 * @param bucket
+	 *            The bucket
+	 * @param bytes
+	 *            The key
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters
+	 * @return If the word starts with the key
+	 */
+	private boolean firstWordStartsWith(int bucket, byte[] bytes, int offset, int length) {
+		if (bucket >= bucketCount) {
+			return false;
+		}
+
+		int position = dataStart + getBucketOffset(bucket);
+		int wordLength = buffer.get(position + 1) & 0xff;
+		int wordStart = position + 2;
+
+		if (wordLength <= length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(wordStart + i) != bytes[offset + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Compares the first word in a bucket with a key
+	 * 
+	 * @param bucket
+	 *            The bucket
+	 * @param bytes
+	 *            The key
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters
+	 * @return Less than 0 if the word comes before the key, 0 if they're the same and more than 0 if it comes after
+	 */
+	private int compareFirstWord(int bucket, byte[] bytes, int offset, int length) {
+		int position = dataStart + getBucketOffset(bucket);
+		int wordLength = buffer.get(position + 1) & 0xff;
+		int wordStart = position + 2;
+
+		for (int i = 0; i < wordLength && i < length; i++) {
+			int difference = (buffer.get(wordStart + i) & 0xff) - (bytes[offset + i] & 0xff);
+
+			if (difference != 0) {
+				return difference;
+			}
+		}
+
+		return wordLength - length;
+	}
+
+	/**
+	 * Gets the position of a bucket relative to the first bucket
+	 * 
+	 * @param bucket
+	 *            The bucket
+	 * @return The position
+	 */
+	private int getBucketOffset(int bucket) {
+		return buffer.getInt(HEADER_SIZE + bucket * 4);
+	}
+
+	/**
+	 * Decodes every word in the dictionary
+	 * 
+	 * @return The words in sorted order
+	 */
+	public List<String> getWords() {
+		List<String> words = new ArrayList<String>(wordCount);
+		byte[] word = new byte[MAX_WORD_LENGTH];
+
+		int position = dataStart;
+
+		while (position < buffer.limit()) {
+			int shared = buffer.get(position) & 0xff;
+			int suffixLength = buffer.get(position + 1) & 0xff;
+
+			for (int i = 0; i < suffixLength; i++) {
+				word[shared + i] = buffer.get(position + 2 + i);
+			}
+
+			words.add(new String(word, 0, shared + suffixLength));
+
+			position += 2 + suffixLength;
+		}
+
+		return words;
+	}
+
+	/**
+	 * Gets the number of words in the dictionary
+	 * 
+	 * @return The number of words
+	 */
+	public int size() {
+		return wordCount;
+	}
+}
@@ -0,0 +1,140 @@
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * Compiles a dictionary with one word per line in to the binary format read by CompiledDictionary. The words are
+ * normalized, sorted and deduplicated once here instead of in every task.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class DictionaryCompiler {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The characters a normalized word can have */
+	private static final Pattern WORDS_PATTERN = Pattern.compile("[a-z]+");
+
+	/**
+	 * Normalizes a dictionary entry to lower case and removes all dashes
+	 * 
+	 * @param line
+	 *            The line from the dictionary
+	 * @return The word or null if the entry has characters that can't be in a Boggle roll
+	 */
+	public static String normalize(String line) {
+		line = line.toLowerCase().replace("-", "");
+
+		if (!WORDS_PATTERN.matcher(line).matches() || line.length() > CompiledDictionary.MAX_WORD_LENGTH) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Skipping entry: \"" + line + "\"");
+			}
+
+			return null;
+		}
+
+		return line;
+	}
+
+	/**
+	 * Reads the normalized words from a dictionary. The dictionary can be the plain text or already compiled.
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path to the dictionary
+	 * @return The words sorted without duplicates
+	 * @throws IOException
+	 */
+	public static List<String> readWords(FileSystem fileSystem, Path path) throws IOException {
+		if (CompiledDictionary.isCompiled(fileSystem, path)) {
+			return CompiledDictionary.load(fileSystem, path).getWords();
+		}
+
+		BufferedReader dict = new BufferedReader(new InputStreamReader(fileSystem.open(path)));
+
+		TreeSet<String> words = new TreeSet<String>();
+
+		try {
+			String line;
+
+			while ((line = dict.readLine()) != null) {
+				String word = normalize(line);
+
+				if (word != null) {
+					words.add(word);
+				}
+			}
+		} finally {
+			dict.close();
+		}
+
+		return new ArrayList<String>(words);
+	}
+
+	/**
+	 * Compiles a dictionary. An already compiled dictionary is written out again.
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param dictionary
+	 *            The path to the dictionary
+	 * @param compiled
+	 *            The path to write the compiled dictionary to
+	 * @return The number of words
+	 * @throws IOException
+	 */
+	public static int compile(FileSystem fileSystem, Path dictionary, Path compiled) throws IOException {
+		List<String> words = readWords(fileSystem, dictionary);
+
+		DataOutputStream outputStream = fileSystem.create(compiled);
+
+		try {
+			CompiledDictionary.write(words, outputStream);
+		} finally {
+			outputStream.close();
+		}
+
+		return words.size();
+	}
+
+	public static void main(String args[]) {
+		try {
+			String wordFile = null;
+			String compiledFile = null;
+
+			if (args.length == 2) {
+				wordFile = args[0];
+				compiledFile = args[1];
+			} else if (args.length == 0) {
+				wordFile = "/usr/share/dict/words";
+				compiledFile = "dictionary.out";
+			} else {
+				System.out.println("Usage <pathtodictionary> <pathtocompileddictionary>");
+			}
+
+			System.out.println("Reading dictionary from " + wordFile + " outputting compiled dictionary to "
+					+ compiledFile);
+
+			Configuration configuration = new Configuration();
+			FileSystem fs = FileSystem.get(configuration);
+
+			int totalWords = compile(fs, new Path(wordFile), new Path(compiledFile));
+
+			System.out.println("Total Words:" + totalWords + " Compiled Size:"
+					+ fs.getFileStatus(new Path(compiledFile)).getLen());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+
+/**
+ * Ships the dictionary files and the side file of a big roll to the tasks with the distributed cache. The files are
+ * copied once per node and linked in to every task's working directory under the name of the parameter holding their
+ * path, so the tasks can memory map or read them instead of reading them from HDFS.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class DistributedCacheFiles {
+	/**
+	 * Adds the files in the parameters to the job's distributed cache if it's turned on
+	 * 
+	 * @param job
+	 *            The job to add the files to
+	 * @param params
+	 *            The parameters with the files' paths. Parameters that aren't set are skipped.
+	 * @throws IOException
+	 */
+	@SuppressWarnings("deprecation")
+	public static void addCacheFiles(Job job, String... params) throws IOException {
+		Configuration configuration = job.getConfiguration();
+
+		if (!configuration.getBoolean(BoggleDriver.DISTRIBUTED_CACHE_PARAM, BoggleDriver.DISTRIBUTED_CACHE_DEFAULT)) {
+			return;
+		}
+
+		FileSystem fileSystem = FileSystem.get(configuration);
+
+		for (String param : params) {
+			if (configuration.get(param) == null) {
+				continue;
+			}
+
+			URI uri = fileSystem.makeQualified(new Path(configuration.get(param))).toUri();
+
+			try {
+				// The fragment is the name of the link in the task's working directory
+				job.addCacheFile(new URI(uri.getScheme(), uri.getAuthority(), uri.getPath(), null, param));
+			} catch (URISyntaxException e) {
+				throw new IOException("Could not add " + uri + " to the distributed cache", e);
+			}
+		}
+
+		// YARN always creates the links but MR1 only does when asked
+		job.createSymlink();
+	}
+
+	/**
+	 * Gets the local copy of a file from the distributed cache
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param param
+	 *            The parameter with the file's path
+	 * @return The local file or null if the file isn't in the distributed cache
+	 */
+	public static File getLocalFile(Configuration configuration, String param) {
+		if (configuration.get(param) == null
+				|| !configuration.getBoolean(BoggleDriver.DISTRIBUTED_CACHE_PARAM,
+						BoggleDriver.DISTRIBUTED_CACHE_DEFAULT)) {
+			return null;
+		}
+
+		File file = new File(param);
+
+		return file.exists() ? file : null;
+	}
+}
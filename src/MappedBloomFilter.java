@@ -0,0 +1,165 @@
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.util.hash.Hash;
+
+/**
+ * A read only view of a Bloom Filter written by UserDictBloom. The bits are used where they are in the serialized
+ * filter so the file can be memory mapped instead of being read in to a BitSet. The membership test hashes the bytes
+ * the same way Hadoop's BloomFilter does without creating a Key or an array of hashes.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class MappedBloomFilter {
+	/** The version Hadoop's Filter writes in the header */
+	private static final int FILTER_VERSION = -1;
+
+	/** The number of bytes in Hadoop's Filter header (version, hashes, hash type and vector size) */
+	private static final int HEADER_SIZE = 13;
+
+	/** The number of hashes */
+	private int nbHash;
+
+	/** The number of bits */
+	private int vectorSize;
+
+	/** The hash function */
+	private Hash hash;
+
+	/** The serialized filter with the bits starting after the header */
+	private ByteBuffer buffer;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param buffer
+	 *            The serialized filter
+	 * @throws IOException
+	 */
+	private MappedBloomFilter(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		int version = buffer.getInt(0);
+
+		if (version != FILTER_VERSION) {
+			throw new IOException("The Bloom Filter version is not supported.  The version was " + version);
+		}
+
+		nbHash = buffer.getInt(4);
+		hash = Hash.getInstance(buffer.get(8));
+		vectorSize = buffer.getInt(9);
+	}
+
+	/**
+	 * Opens the Bloom Filter in the configuration. The filter is memory mapped if it was shipped with the distributed
+	 * cache, otherwise it is read from the filesystem.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @return The Bloom Filter
+	 * @throws IOException
+	 */
+	public static MappedBloomFilter open(Configuration configuration) throws IOException {
+		File cachedFile = DistributedCacheFiles.getLocalFile(configuration, BoggleDriver.BLOOM_PARAM);
+
+		if (cachedFile != null) {
+			return map(cachedFile);
+		}
+
+		return load(FileSystem.get(configuration), new Path(configuration.get(BoggleDriver.BLOOM_PARAM)));
+	}
+
+	/**
+	 * Reads a serialized Bloom Filter on to the heap
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path to the serialized Bloom Filter
+	 * @return The Bloom Filter
+	 * @throws IOException
+	 */
+	public static MappedBloomFilter load(FileSystem fileSystem, Path path) throws IOException {
+		byte[] bytes = new byte[(int) fileSystem.getFileStatus(path).getLen()];
+
+		DataInputStream inputStream = fileSystem.open(path);
+
+		try {
+			IOUtils.readFully(inputStream, bytes, 0, bytes.length);
+		} finally {
+			inputStream.close();
+		}
+
+		return new MappedBloomFilter(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Memory maps a serialized Bloom Filter read only
+	 * 
+	 * @param file
+	 *            The local serialized Bloom Filter
+	 * @return The Bloom Filter
+	 * @throws IOException
+	 */
+	public static MappedBloomFilter map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			// The mapping stays valid after the file is closed
+			return new MappedBloomFilter(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					randomAccessFile.length()));
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Checks if the bytes might have been added to the filter
+	 * 
+	 * @param bytes
+	 *            The bytes to check
+	 * @param length
+	 *            The number of bytes from the start of the array
+	 * @return False if the bytes were definitely not added
+	 */
+	public boolean membershipTest(byte[] bytes, int length) {
+		for (int i = 0, initval = 0; i < nbHash; i++) {
+			// Each hash is seeded with the previous one like Hadoop's HashFunction
+			initval = hash.hash(bytes, length, initval);
+			int bit = Math.abs(initval % vectorSize);
+
+			if ((buffer.get(HEADER_SIZE + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the number of bits in the filter
+	 * 
+	 * @return The number of bits
+	 */
+	public int getVectorSize() {
+		return vectorSize;
+	}
+
+	/**
+	 * Gets the number of hashes for every test
+	 * 
+	 * @return The number of hashes
+	 */
+	public int getNbHash() {
+		return nbHash;
+	}
+}
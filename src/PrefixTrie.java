@@ -0,0 +1,491 @@
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * A prefix trie of every word in the dictionary stored in flat primitive arrays. Unlike the Bloom Filter, the trie
+ * has no false positives and knows which prefixes are real words.
+ * 
+ * The children of a node are stored next to each other and sorted by letter. A node is identified by its index in
+ * the arrays and the root is always node 0.
+ * 
+ * The arrays are kept in buffers so that a serialized trie can be memory mapped and used without being parsed or
+ * copied on to the heap.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class PrefixTrie implements Writable {
+	/** The version of the serialized trie */
+	private static final int VERSION = 1;
+
+	/** The id of the root node */
+	public static final int ROOT = 0;
+
+	/** The id returned when a prefix isn't in the trie */
+	public static final int NO_NODE = -1;
+
+	/** The number of bytes before the arrays in a serialized trie */
+	private static final int HEADER_SIZE = 8;
+
+	/** The number of nodes */
+	private int size;
+
+	/** The index of each node's first child */
+	private IntBuffer firstChild;
+
+	/** The number of children for each node */
+	private ByteBuffer childCount;
+
+	/** The letter leading to each node */
+	private ByteBuffer letters;
+
+	/** The bitset of nodes that end a word */
+	private LongBuffer words;
+
+	/**
+	 * Empty constructor for serialization
+	 */
+	public PrefixTrie() {
+	}
+
+	/**
+	 * Opens the trie in the configuration. The trie is memory mapped if it was shipped with the distributed cache,
+	 * otherwise it is read from the filesystem.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @return The trie
+	 * @throws IOException
+	 */
+	public static PrefixTrie open(Configuration configuration) throws IOException {
+		File cachedFile = DistributedCacheFiles.getLocalFile(configuration, BoggleDriver.TRIE_PARAM);
+
+		if (cachedFile != null) {
+			return map(cachedFile);
+		}
+
+		return load(FileSystem.get(configuration), new Path(configuration.get(BoggleDriver.TRIE_PARAM)));
+	}
+
+	/**
+	 * Loads a serialized trie
+	 * 
+	 * @param fileSystem
+	 *            The filesystem object
+	 * @param path
+	 *            The path to the serialized trie
+	 * @return The trie
+	 * @throws IOException
+	 */
+	public static PrefixTrie load(FileSystem fileSystem, Path path) throws IOException {
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(fileSystem.open(path)));
+
+		try {
+			PrefixTrie trie = new PrefixTrie();
+			trie.readFields(inputStream);
+
+			return trie;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Memory maps a serialized trie read only. Nothing is copied on to the heap so every task on a node shares the
+	 * operating system's page cache.
+	 * 
+	 * @param file
+	 *            The local serialized trie
+	 * @return The trie
+	 * @throws IOException
+	 */
+	public static PrefixTrie map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			// The mapping stays valid after the file is closed
+			MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					randomAccessFile.length());
+
+			int version = buffer.getInt(0);
+
+			if (version != VERSION) {
+				throw new IOException("The trie version is not supported.  The version was " + version);
+			}
+
+			PrefixTrie trie = new PrefixTrie();
+			trie.size = buffer.getInt(4);
+
+			// The arrays are laid out one after another the same way write puts them
+			int position = HEADER_SIZE;
+			trie.firstChild = slice(buffer, position, trie.size * 4).asIntBuffer();
+			position += trie.size * 4;
+			trie.childCount = slice(buffer, position, trie.size);
+			position += trie.size;
+			trie.letters = slice(buffer, position, trie.size);
+			position += trie.size;
+			trie.words = slice(buffer, position, ((trie.size + 63) >>> 6) * 8).asLongBuffer();
+
+			return trie;
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Gets part of a buffer
+	 * 
+	 * @param buffer
+	 *            The buffer
+	 * @param position
+	 *            The start of the part
+	 * @param length
+	 *            The number of bytes in the part
+	 * @return The part starting at position 0
+	 */
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+
+		return duplicate.slice();
+	}
+
+	/**
+	 * Follows a letter from a node
+	 * 
+	 * @param node
+	 *            The node to start from
+	 * @param letter
+	 *            The letter to follow
+	 * @return The child node or NO_NODE if no word continues with the letter
+	 */
+	public int step(int node, byte letter) {
+		int first = firstChild.get(node);
+		int end = first + (childCount.get(node) & 0xff);
+
+		for (int i = first; i < end; i++) {
+			byte childLetter = letters.get(i);
+
+			if (childLetter == letter) {
+				return i;
+			} else if (childLetter > letter) {
+				// Children are sorted so the letter can't appear later
+				break;
+			}
+		}
+
+		return NO_NODE;
+	}
+
+	/**
+	 * Follows several letters from a node
+	 * 
+	 * @param node
+	 *            The node to start from
+	 * @param bytes
+	 *            The letters to follow
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters to follow
+	 * @return The node at the end of the letters or NO_NODE if no word continues with the letters
+	 */
+	public int step(int node, byte[] bytes, int offset, int length) {
+		for (int i = offset; i < offset + length && node != NO_NODE; i++) {
+			node = step(node, bytes[i]);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Finds the node for a prefix
+	 * 
+	 * @param bytes
+	 *            The prefix
+	 * @param offset
+	 *            The offset of the first letter
+	 * @param length
+	 *            The number of letters in the prefix
+	 * @return The node for the prefix or NO_NODE if the prefix isn't in the dictionary
+	 */
+	public int find(byte[] bytes, int offset, int length) {
+		return step(ROOT, bytes, offset, length);
+	}
+
+	/**
+	 * Checks if a node ends a word in the dictionary
+	 * 
+	 * @param node
+	 *            The node to check
+	 * @return If the node ends a word
+	 */
+	public boolean isWord(int node) {
+		return node != NO_NODE && (words.get(node >>> 6) & (1L << node)) != 0;
+	}
+
+	/**
+	 * Checks if a node has any children
+	 * 
+	 * @param node
+	 *            The node to check
+	 * @return If any word continues past the node
+	 */
+	public boolean hasChildren(int node) {
+		return node != NO_NODE && childCount.get(node) != 0;
+	}
+
+	/**
+	 * Gets the number of nodes in the trie
+	 * 
+	 * @return The number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Uses arrays on the heap for the trie
+	 * 
+	 * @param firstChild
+	 *            The index of each node's first child
+	 * @param childCount
+	 *            The number of children for each node
+	 * @param letters
+	 *            The letter leading to each node
+	 * @param words
+	 *            The bitset of nodes that end a word
+	 */
+	private void setArrays(int[] firstChild, byte[] childCount, byte[] letters, long[] words) {
+		size = letters.length;
+		this.firstChild = IntBuffer.wrap(firstChild);
+		this.childCount = ByteBuffer.wrap(childCount);
+		this.letters = ByteBuffer.wrap(letters);
+		this.words = LongBuffer.wrap(words);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(VERSION);
+		out.writeInt(size);
+
+		for (int i = 0; i < size; i++) {
+			out.writeInt(firstChild.get(i));
+		}
+
+		for (int i = 0; i < size; i++) {
+			out.writeByte(childCount.get(i));
+		}
+
+		for (int i = 0; i < size; i++) {
+			out.writeByte(letters.get(i));
+		}
+
+		for (int i = 0; i < words.limit(); i++) {
+			out.writeLong(words.get(i));
+		}
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		int version = in.readInt();
+
+		if (version != VERSION) {
+			throw new IOException("The trie version is not supported.  The version was " + version);
+		}
+
+		int size = in.readInt();
+
+		int[] firstChild = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			firstChild[i] = in.readInt();
+		}
+
+		byte[] childCount = new byte[size];
+		in.readFully(childCount);
+
+		byte[] letters = new byte[size];
+		in.readFully(letters);
+
+		long[] words = new long[(size + 63) >>> 6];
+
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readLong();
+		}
+
+		setArrays(firstChild, childCount, letters, words);
+	}
+
+	/**
+	 * Builds a trie one word at a time. Nodes are kept as a sorted first child/next sibling tree while building and
+	 * laid out breadth first when the trie is built so that every node's children are next to each other.
+	 */
+	public static class Builder {
+		/** The letter leading to each node */
+		private byte[] letters = new byte[1024];
+
+		/** The first child of each node or NO_NODE */
+		private int[] firstChild = new int[1024];
+
+		/** The next sibling of each node or NO_NODE */
+		private int[] nextSibling = new int[1024];
+
+		/** If each node ends a word */
+		private boolean[] isWord = new boolean[1024];
+
+		/** The number of nodes so far */
+		private int size = 0;
+
+		/**
+		 * Constructor
+		 */
+		public Builder() {
+			// Create the root
+			newNode((byte) 0);
+		}
+
+		/**
+		 * Adds a word and all of its prefixes to the trie
+		 * 
+		 * @param word
+		 *            The normalized word to add
+		 */
+		public void add(String word) {
+			int node = ROOT;
+
+			for (int i = 0; i < word.length(); i++) {
+				node = getOrAddChild(node, (byte) word.charAt(i));
+			}
+
+			isWord[node] = true;
+		}
+
+		/**
+		 * Gets the number of nodes added so far
+		 * 
+		 * @return The number of nodes
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Lays out the nodes breadth first and creates the trie
+		 * 
+		 * @return The trie
+		 */
+		public PrefixTrie build() {
+			int[] trieFirstChild = new int[size];
+			byte[] trieChildCount = new byte[size];
+			byte[] trieLetters = new byte[size];
+			long[] trieWords = new long[(size + 63) >>> 6];
+
+			// The position of the next child to be laid out
+			int next = 1;
+
+			ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+			queue.add(ROOT);
+
+			for (int position = 0; !queue.isEmpty(); position++) {
+				int node = queue.poll();
+
+				trieLetters[position] = letters[node];
+
+				if (isWord[node]) {
+					trieWords[position >>> 6] |= 1L << position;
+				}
+
+				// The children will be laid out in the next free positions
+				trieFirstChild[position] = next;
+
+				for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+					queue.add(child);
+					trieChildCount[position]++;
+					next++;
+				}
+			}
+
+			PrefixTrie trie = new PrefixTrie();
+			trie.setArrays(trieFirstChild, trieChildCount, trieLetters, trieWords);
+
+			return trie;
+		}
+
+		/**
+		 * Finds a child with the letter and adds it if it doesn't exist
+		 * 
+		 * @param node
+		 *            The parent node
+		 * @param letter
+		 *            The letter of the child
+		 * @return The child node
+		 */
+		private int getOrAddChild(int node, byte letter) {
+			int previous = NO_NODE;
+			int child = firstChild[node];
+
+			// Siblings are kept sorted by letter
+			while (child != NO_NODE && letters[child] < letter) {
+				previous = child;
+				child = nextSibling[child];
+			}
+
+			if (child != NO_NODE && letters[child] == letter) {
+				return child;
+			}
+
+			int newChild = newNode(letter);
+			nextSibling[newChild] = child;
+
+			if (previous == NO_NODE) {
+				firstChild[node] = newChild;
+			} else {
+				nextSibling[previous] = newChild;
+			}
+
+			return newChild;
+		}
+
+		/**
+		 * Creates a node without any children or siblings
+		 * 
+		 * @param letter
+		 *            The letter leading to the node
+		 * @return The new node
+		 */
+		private int newNode(byte letter) {
+			if (size == letters.length) {
+				int newLength = letters.length * 2;
+				letters = Arrays.copyOf(letters, newLength);
+				firstChild = Arrays.copyOf(firstChild, newLength);
+				nextSibling = Arrays.copyOf(nextSibling, newLength);
+				isWord = Arrays.copyOf(isWord, newLength);
+			}
+
+			letters[size] = letter;
+			firstChild[size] = NO_NODE;
+			nextSibling[size] = NO_NODE;
+
+			return size++;
+		}
+	}
+}
@@ -0,0 +1,415 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of the words found in rolls kept in a directory on the local disk. Rotating or reflecting a roll doesn't
+ * change which cells are next to each other, so the roll is turned in to the smallest of its 8 rotations and
+ * reflections before it's looked up. The key also has the dictionary's fingerprint and the parameters that change the
+ * words. The least recently used entries are evicted once the cache is bigger than its limit.
+ * 
+ * The entries have the lines the final job writes for the roll. The representative paths are stored in the canonical
+ * roll's cells and turned back in to the looked up roll's cells, so they are always real paths for the word. They
+ * are only the paths with the lowest cells if the roll is in the same orientation as the roll that was cached.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class RollCache {
+	private static final Logger logger = Logger.getLogger("Boggle");
+
+	/** The extension of the entry files */
+	private static final String ENTRY_EXTENSION = ".words";
+
+	/** The file with the hits and misses since the cache was created */
+	private static final String STATS_FILE = "_stats";
+
+	/** The number of rotations and reflections of a square */
+	private static final int SYMMETRIES = 8;
+
+	/** The directory with the entries */
+	private File directory;
+
+	/** The most bytes the entries can take */
+	private long maxBytes;
+
+	/** The parts of the key that are the same for every roll */
+	private String keySuffix;
+
+	/** The configuration with the parameters that decide how long the paths can be */
+	private Configuration configuration;
+
+	/** If the lines have a representative path to turn */
+	private boolean paths;
+
+	/** The hits since the cache was opened */
+	private long hits;
+
+	/** The misses since the cache was opened */
+	private long misses;
+
+	/** The entries evicted since the cache was opened */
+	private long evictions;
+
+	/**
+	 * Opens the cache in the directory from the configuration
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @param fileSystem
+	 *            The filesystem object with the dictionary
+	 * @param dictionary
+	 *            The path to the dictionary the words are checked against. The trie is used instead if it's set.
+	 * @throws IOException
+	 */
+	public RollCache(Configuration configuration, FileSystem fileSystem, String dictionary) throws IOException {
+		this.configuration = configuration;
+		directory = new File(configuration.get(BoggleDriver.CACHE_PARAM));
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the result cache directory " + directory);
+		}
+
+		maxBytes = configuration.getLong(BoggleDriver.CACHE_MAX_BYTES_PARAM, BoggleDriver.CACHE_MAX_BYTES_DEFAULT);
+
+		boolean batch = configuration.get(BoggleDriver.BATCH_PARAM) != null;
+		paths = !batch
+				&& configuration.getBoolean(BoggleDriver.REPRESENTATIVE_PATH_PARAM,
+						BoggleDriver.REPRESENTATIVE_PATH_DEFAULT);
+
+		// The trie decides the words when there is one, otherwise the dictionary does
+		Path wordsPath = new Path(configuration.get(BoggleDriver.TRIE_PARAM) != null ? configuration
+				.get(BoggleDriver.TRIE_PARAM) : dictionary);
+		InputStream inputStream = fileSystem.open(wordsPath);
+		MD5Hash fingerprint;
+
+		try {
+			fingerprint = MD5Hash.digest(inputStream);
+		} finally {
+			inputStream.close();
+		}
+
+		// A batch's lines only have the words and a single roll's can have the paths too
+		keySuffix = "\n" + (batch ? "batch" : paths ? "paths" : "words") + "\n" + fingerprint + "\n"
+				+ configuration.getInt(BoggleDriver.MINIMUM_WORD_SIZE_PARAM, BoggleDriver.MINIMUM_WORD_SIZE_DEFAULT);
+
+		if (!configuration.getBoolean(BoggleDriver.LOCAL_SOLVER_PARAM, BoggleDriver.LOCAL_SOLVER_DEFAULT)
+				&& configuration.getInt(BoggleDriver.EXPANSION_DEPTH_PARAM, BoggleDriver.EXPANSION_DEPTH_DEFAULT) > 1) {
+			// Nodes past the budget are left for the next iteration, so the last iteration can stop short of them
+			keySuffix += "\n" + configuration.getInt(BoggleDriver.EXPANSION_BUDGET_PARAM,
+					BoggleDriver.EXPANSION_BUDGET_DEFAULT);
+		}
+	}
+
+	/**
+	 * Gets the cell every cell of a roll moves to for one of its rotations and reflections
+	 * 
+	 * @param rollSize
+	 *            The size of the roll
+	 * @param symmetry
+	 *            The rotation and reflection from 0 to 7. 0 leaves the roll the way it is.
+	 * @return The moved cells indexed by cell
+	 */
+	public static int[] getSymmetryCells(int rollSize, int symmetry) {
+		int[] cells = new int[rollSize * rollSize];
+
+		for (int row = 0; row < rollSize; row++) {
+			for (int col = 0; col < rollSize; col++) {
+				int nextRow = row;
+				int nextCol = symmetry >= 4 ? rollSize - 1 - col : col;
+
+				// Turn a quarter clockwise for every rotation
+				for (int i = 0; i < symmetry % 4; i++) {
+					int turnedRow = nextCol;
+					nextCol = rollSize - 1 - nextRow;
+					nextRow = turnedRow;
+				}
+
+				cells[row * rollSize + col] = nextRow * rollSize + nextCol;
+			}
+		}
+
+		return cells;
+	}
+
+	/**
+	 * Gets the cells that turn a roll in to its canonical roll. The canonical roll is the rotation or reflection with
+	 * the smallest letters in row order.
+	 * 
+	 * @param roll
+	 *            The roll
+	 * @return The canonical roll's cell for every cell of the roll
+	 */
+	public static int[] getCanonicalCells(BoggleRoll roll) {
+		int[] canonicalCells = null;
+		String canonicalLetters = null;
+
+		for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+			int[] cells = getSymmetryCells(roll.rollSize, symmetry);
+			String letters = getLetters(roll, cells);
+
+			if (canonicalLetters == null || letters.compareTo(canonicalLetters) < 0) {
+				canonicalCells = cells;
+				canonicalLetters = letters;
+			}
+		}
+
+		return canonicalCells;
+	}
+
+	/**
+	 * Gets the letters of a moved roll in row order
+	 * 
+	 * @param roll
+	 *            The roll
+	 * @param cells
+	 *            The cell every cell of the roll moves to
+	 * @return The letters separated by commas
+	 */
+	private static String getLetters(BoggleRoll roll, int[] cells) {
+		String[] letters = new String[cells.length];
+
+		for (int cell = 0; cell < cells.length; cell++) {
+			letters[cells[cell]] = roll.rollCharacters[cell / roll.rollSize][cell % roll.rollSize];
+		}
+
+		StringBuilder builder = new StringBuilder();
+
+		for (String letter : letters) {
+			builder.append(letter).append(',');
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Looks up the lines for a roll
+	 * 
+	 * @param roll
+	 *            The roll
+	 * @return The lines for the roll or null if it isn't in the cache
+	 * @throws IOException
+	 */
+	public List<String> get(BoggleRoll roll) throws IOException {
+		int[] canonicalCells = getCanonicalCells(roll);
+		File entry = getEntry(roll, canonicalCells);
+
+		if (!entry.exists()) {
+			misses++;
+			return null;
+		}
+
+		// The modification time orders the entries by when they were last used
+		entry.setLastModified(System.currentTimeMillis());
+		hits++;
+
+		// Turn the paths from the canonical roll's cells back in to the roll's cells
+		int[] rollCells = new int[canonicalCells.length];
+
+		for (int cell = 0; cell < canonicalCells.length; cell++) {
+			rollCells[canonicalCells[cell]] = cell;
+		}
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(entry), "UTF-8"));
+
+		try {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				lines.add(paths ? moveCells(line, rollCells) : line);
+			}
+		} finally {
+			reader.close();
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Adds the lines for a roll and evicts the least recently used entries if the cache is too big
+	 * 
+	 * @param roll
+	 *            The roll
+	 * @param lines
+	 *            The lines for the roll
+	 * @throws IOException
+	 */
+	public void put(BoggleRoll roll, List<String> lines) throws IOException {
+		int[] canonicalCells = getCanonicalCells(roll);
+		File entry = getEntry(roll, canonicalCells);
+
+		// Write to a hidden file first so a reader never sees half of an entry
+		File tempEntry = new File(directory, "." + entry.getName());
+		Writer writer = new OutputStreamWriter(new FileOutputStream(tempEntry), "UTF-8");
+
+		try {
+			for (String line : lines) {
+				writer.write(paths ? moveCells(line, canonicalCells) : line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+
+		entry.delete();
+
+		if (!tempEntry.renameTo(entry)) {
+			throw new IOException("Could not add " + entry + " to the result cache");
+		}
+
+		evict();
+	}
+
+	/**
+	 * Adds the hits and misses to the totals in the stats file and logs them
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		File statsFile = new File(directory, STATS_FILE);
+		Properties stats = new Properties();
+
+		if (statsFile.exists()) {
+			InputStream inputStream = new FileInputStream(statsFile);
+
+			try {
+				stats.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		}
+
+		long totalHits = Long.parseLong(stats.getProperty("hits", "0")) + hits;
+		long totalMisses = Long.parseLong(stats.getProperty("misses", "0")) + misses;
+		long totalEvictions = Long.parseLong(stats.getProperty("evictions", "0")) + evictions;
+
+		stats.setProperty("hits", Long.toString(totalHits));
+		stats.setProperty("misses", Long.toString(totalMisses));
+		stats.setProperty("evictions", Long.toString(totalEvictions));
+
+		FileOutputStream outputStream = new FileOutputStream(statsFile);
+
+		try {
+			stats.store(outputStream, "Result cache stats");
+		} finally {
+			outputStream.close();
+		}
+
+		logger.info("The result cache had " + hits + " hits and " + misses + " misses and evicted " + evictions
+				+ " rolls.  In total it had " + totalHits + " hits and " + totalMisses + " misses and evicted "
+				+ totalEvictions + " rolls.");
+	}
+
+	/**
+	 * Gets the file for a roll's entry. The file is named by the hash of the canonical roll and the rest of the key.
+	 * 
+	 * @param roll
+	 *            The roll
+	 * @param canonicalCells
+	 *            The canonical roll's cell for every cell of the roll
+	 * @return The entry's file
+	 */
+	private File getEntry(BoggleRoll roll, int[] canonicalCells) {
+		// The longest path decides the words instead of the iterations and depth it took to get there
+		String key = roll.rollSize + "\n" + getLetters(roll, canonicalCells) + keySuffix + "\n"
+				+ BoggleLocalSolver.getMaxPathLength(configuration, roll.rollSize);
+
+		return new File(directory, MD5Hash.digest(key) + ENTRY_EXTENSION);
+	}
+
+	/**
+	 * Moves the cells in the path at the end of a line like "word\tcount\t[1,2,3] true"
+	 * 
+	 * @param line
+	 *            The line
+	 * @param cells
+	 *            The cell every cell moves to
+	 * @return The line with the moved cells
+	 */
+	private static String moveCells(String line, int[] cells) {
+		int start = line.lastIndexOf('[');
+		int end = line.lastIndexOf(']');
+
+		if (start == -1 || end < start) {
+			return line;
+		}
+
+		StringBuilder builder = new StringBuilder(line.substring(0, start + 1));
+		String[] pathCells = line.substring(start + 1, end).split(",");
+
+		for (int i = 0; i < pathCells.length; i++) {
+			if (i != 0) {
+				builder.append(',');
+			}
+
+			builder.append(cells[Integer.parseInt(pathCells[i])]);
+		}
+
+		return builder.append(line.substring(end)).toString();
+	}
+
+	/**
+	 * Checks if a file in the cache directory is an entry. Entries that are still being written are hidden.
+	 * 
+	 * @param file
+	 *            The file
+	 * @return If the file is an entry
+	 */
+	private static boolean isEntry(File file) {
+		return file.getName().endsWith(ENTRY_EXTENSION) && !file.getName().startsWith(".");
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache is no bigger than its limit
+	 */
+	private void evict() {
+		File[] entries = directory.listFiles();
+		long totalBytes = 0;
+
+		for (File entry : entries) {
+			if (isEntry(entry)) {
+				totalBytes += entry.length();
+			}
+		}
+
+		if (totalBytes <= maxBytes) {
+			return;
+		}
+
+		Arrays.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File entry1, File entry2) {
+				long modified1 = entry1.lastModified();
+				long modified2 = entry2.lastModified();
+
+				return modified1 < modified2 ? -1 : modified1 == modified2 ? 0 : 1;
+			}
+		});
+
+		for (int i = 0; i < entries.length && totalBytes > maxBytes; i++) {
+			if (isEntry(entries[i])) {
+				totalBytes -= entries[i].length();
+				entries[i].delete();
+				evictions++;
+			}
+		}
+	}
+}
@@ -1,71 +1,293 @@
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
 /**
  * A custom writable that represents the nodes traversed in a Boggle roll graph while trying to find a word.
  * 
+ * Each node is stored as the index of its cell in the roll (row * rollSize + column). Only the cells are serialized.
+ * The bitset of visited cells is rebuilt from them when the writable is read in. Paths that were merged with equivalent
+ * paths also carry the number of paths they stand for.
+ * 
  * @author jesseanderson
  * 
  */
 public class RollGraphWritable implements Writable {
-	/** The nodes traversed so far */
-	ArrayList<Node> nodes = new ArrayList<Node>();
+	/** The cells traversed so far in the order they were traversed */
+	private int[] cells = new int[16];
+
+	/** The number of cells traversed so far */
+	private int length;
+
+	/** The bitset of cells traversed so far */
+	private long[] visited = new long[1];
 
 	/** If the node's children have been traversed */
 	boolean isFinal;
 
+	/** The id of the roll in the batch the nodes are in. Always 0 when a single roll is processed. */
+	int rollId;
+
+	/** The PrefixTrie node for the characters so far or PrefixTrie.NO_NODE if it hasn't been looked up */
+	int trieNode = PrefixTrie.NO_NODE;
+
 	/**
-	 * Constructor
+	 * The number of equivalent paths merged in to this one. Always 1 unless the states are canonicalized. Merging the
+	 * states of a big roll can stand for more paths than fit in an int.
+	 */
+	long pathCount = 1;
+
+	/** The flag for a finished node in the first serialized byte */
+	private static final int FINAL_FLAG = 1;
+
+	/** The flag for a path count after the first serialized byte. Paths that weren't merged don't write it. */
+	private static final int PATH_COUNT_FLAG = 2;
+
+	/**
+	 * Constructor for a path starting at a cell
 	 * 
-	 * @param nodes
-	 *            List of nodes traversed so far
+	 * @param cell
+	 *            The first cell traversed
 	 * @param isFinal
 	 *            If the node's children have been traversed
 	 */
-	public RollGraphWritable(ArrayList<Node> nodes, boolean isFinal) {
-		this.nodes = nodes;
+	public RollGraphWritable(int cell, boolean isFinal) {
+		addCell(cell);
 		this.isFinal = isFinal;
 	}
 
+	/**
+	 * Copy constructor
+	 * 
+	 * @param other
+	 *            The writable to copy
+	 */
+	public RollGraphWritable(RollGraphWritable other) {
+		set(other);
+	}
+
 	/**
 	 * Empty constructor for serialization
 	 */
 	public RollGraphWritable() {
 	}
 
+	/**
+	 * Copies another writable in to this one
+	 * 
+	 * @param other
+	 *            The writable to copy
+	 */
+	public void set(RollGraphWritable other) {
+		clear();
+
+		for (int i = 0; i < other.length; i++) {
+			addCell(other.cells[i]);
+		}
+
+		isFinal = other.isFinal;
+		rollId = other.rollId;
+		trieNode = other.trieNode;
+		pathCount = other.pathCount;
+	}
+
+	/**
+	 * Merges an equivalent path in to this one. Equivalent paths have the same roll, characters, last cell and visited
+	 * cells so their children are the same too. The path with the lowest cells is kept to represent them.
+	 * 
+	 * @param other
+	 *            The equivalent path
+	 */
+	public void merge(RollGraphWritable other) {
+		long mergedCount = pathCount + other.pathCount;
+
+		if (other.compareCells(this) < 0) {
+			set(other);
+		}
+
+		pathCount = mergedCount;
+	}
+
+	/**
+	 * Writes the parts of the path that decide which nodes can follow it. The characters aren't stored in the
+	 * writable so they are written by the caller.
+	 * 
+	 * @param out
+	 *            The output to write the state to
+	 * @throws IOException
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, rollId);
+		WritableUtils.writeVInt(out, getLastCell());
+
+		// The bitset can have extra empty longs after it grows
+		int words = visited.length;
+
+		while (words > 0 && visited[words - 1] == 0) {
+			words--;
+		}
+
+		for (int i = 0; i < words; i++) {
+			out.writeLong(visited[i]);
+		}
+	}
+
+	/**
+	 * Adds a cell to the end of the path
+	 * 
+	 * @param cell
+	 *            The cell to add
+	 */
+	public void addCell(int cell) {
+		if (length == cells.length) {
+			cells = Arrays.copyOf(cells, length * 2);
+		}
+
+		if ((cell >>> 6) >= visited.length) {
+			// Big rolls need more than one long
+			visited = Arrays.copyOf(visited, (cell >>> 6) + 1);
+		}
+
+		cells[length++] = cell;
+		visited[cell >>> 6] |= 1L << cell;
+	}
+
+	/**
+	 * Removes the last cell from the path
+	 */
+	public void removeLastCell() {
+		int cell = cells[--length];
+		visited[cell >>> 6] &= ~(1L << cell);
+	}
+
+	/**
+	 * Checks if a cell has already been traversed
+	 * 
+	 * @param cell
+	 *            The cell to check
+	 * @return If the cell is in the path
+	 */
+	public boolean isVisited(int cell) {
+		return (cell >>> 6) < visited.length && (visited[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Gets a cell in the path
+	 * 
+	 * @param index
+	 *            The position in the path
+	 * @return The cell
+	 */
+	public int getCell(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * Gets the last cell traversed
+	 * 
+	 * @return The last cell
+	 */
+	public int getLastCell() {
+		return cells[length - 1];
+	}
+
+	/**
+	 * Gets the number of cells traversed
+	 * 
+	 * @return The number of cells
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Compares the cells in two paths in the order they were traversed
+	 * 
+	 * @param other
+	 *            The path to compare to
+	 * @return Less than 0 if this path's cells come first, 0 if they're the same and more than 0 if they come after
+	 */
+	public int compareCells(RollGraphWritable other) {
+		for (int i = 0; i < length && i < other.length; i++) {
+			if (cells[i] != other.cells[i]) {
+				return cells[i] < other.cells[i] ? -1 : 1;
+			}
+		}
+
+		return length - other.length;
+	}
+
+	/**
+	 * Gets the number of bytes the writable takes when it's serialized without compression
+	 * 
+	 * @return The number of bytes written by write
+	 */
+	public int getSerializedSize() {
+		int size = 1 + WritableUtils.getVIntSize(rollId) + WritableUtils.getVIntSize(trieNode)
+				+ WritableUtils.getVIntSize(length);
+
+		if (pathCount != 1) {
+			size += WritableUtils.getVIntSize(pathCount);
+		}
+
+		for (int i = 0; i < length; i++) {
+			size += WritableUtils.getVIntSize(cells[i]);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Removes all cells from the path
+	 */
+	private void clear() {
+		// Only the bits for the cells in the path are set
+		while (length > 0) {
+			removeLastCell();
+		}
+	}
+
 	@Override
 	public void write(DataOutput out) throws IOException {
-		out.writeBoolean(isFinal);
+		// The flags byte is the same as a boolean for paths that weren't merged
+		out.writeByte((isFinal ? FINAL_FLAG : 0) | (pathCount != 1 ? PATH_COUNT_FLAG : 0));
+
+		if (pathCount != 1) {
+			WritableUtils.writeVLong(out, pathCount);
+		}
 
-		// Write out the number of nodes
-		out.writeInt(nodes.size());
+		WritableUtils.writeVInt(out, rollId);
+		WritableUtils.writeVInt(out, trieNode);
 
-		// Write out the nodes
-		for (Node node : nodes) {
-			out.writeShort(node.row);
-			out.writeShort(node.column);
+		// Write out the number of cells
+		WritableUtils.writeVInt(out, length);
+
+		// Write out the cells
+		for (int i = 0; i < length; i++) {
+			WritableUtils.writeVInt(out, cells[i]);
 		}
 	}
 
 	@Override
 	public void readFields(DataInput in) throws IOException {
-		nodes.clear();
-
-		isFinal = in.readBoolean();
+		clear();
 
-		// See how many nodes have been traversed
-		int numNodes = in.readInt();
+		int flags = in.readByte();
+		isFinal = (flags & FINAL_FLAG) != 0;
+		pathCount = (flags & PATH_COUNT_FLAG) != 0 ? WritableUtils.readVLong(in) : 1;
+		rollId = WritableUtils.readVInt(in);
+		trieNode = WritableUtils.readVInt(in);
 
-		// Read in the nodes
-		for (int i = 0; i < numNodes; i++) {
-			short row = in.readShort();
-			short column = in.readShort();
+		// See how many cells have been traversed
+		int numCells = WritableUtils.readVInt(in);
 
-			nodes.add(new Node(row, column));
+		// Read in the cells
+		for (int i = 0; i < numCells; i++) {
+			addCell(WritableUtils.readVInt(in));
 		}
 	}
 
@@ -75,8 +297,12 @@ public class RollGraphWritable implements Writable {
 
 		buffer.append("[");
 
-		for (Node node : nodes) {
-			buffer.append("[").append(node.row).append(",").append(node.column).append("]");
+		for (int i = 0; i < length; i++) {
+			if (i != 0) {
+				buffer.append(",");
+			}
+
+			buffer.append(cells[i]);
 		}
 
 		buffer.append("] ");
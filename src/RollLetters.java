@@ -0,0 +1,167 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The Boggle rolls in the configuration with the letters of every cell as bytes. The nodes are written without their
+ * characters, so the characters are rebuilt from the cells in the path and the roll they're in. Big rolls are read from
+ * their side file instead of the configuration.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class RollLetters {
+	/** The Boggle Rolls that are being processed indexed by roll id */
+	private BoggleRoll[] rolls;
+
+	/** The letters of every cell as bytes indexed by roll id and then cell */
+	private byte[][][] letters;
+
+	/** The most bytes any cell's letters take */
+	private int maxLetterLength;
+
+	/** The characters of the last word built */
+	private byte[] wordBytes = new byte[64];
+
+	/**
+	 * Reads the single roll or the batch of rolls from the configuration or the roll's side file
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @throws IOException
+	 */
+	public RollLetters(Configuration configuration) throws IOException {
+		if (configuration.get(BoggleDriver.BATCH_PARAM) != null) {
+			rolls = BoggleRollBatch.read(configuration, new Path(configuration.get(BoggleDriver.BATCH_PARAM)))
+					.toArray(new BoggleRoll[0]);
+		} else if (configuration.get(BoggleDriver.BOARD_PARAM) != null) {
+			rolls = new BoggleRoll[] { readBoard(configuration) };
+		} else {
+			rolls = new BoggleRoll[] { BoggleRoll.deserialize(configuration.get(BoggleDriver.ROLL_PARAM)) };
+		}
+
+		// Convert the letters once instead of for every node
+		letters = new byte[rolls.length][][];
+
+		for (int i = 0; i < rolls.length; i++) {
+			letters[i] = rolls[i].getLetterBytes();
+
+			for (byte[] cellLetters : letters[i]) {
+				maxLetterLength = Math.max(maxLetterLength, cellLetters.length);
+			}
+		}
+	}
+
+	/**
+	 * Reads the single roll from its side file. The local copy from the distributed cache is read if there is one.
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @return The roll
+	 * @throws IOException
+	 */
+	private static BoggleRoll readBoard(Configuration configuration) throws IOException {
+		File cachedFile = DistributedCacheFiles.getLocalFile(configuration, BoggleDriver.BOARD_PARAM);
+		DataInputStream inputStream;
+
+		if (cachedFile != null) {
+			inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cachedFile)));
+		} else {
+			inputStream = FileSystem.get(configuration).open(new Path(configuration.get(BoggleDriver.BOARD_PARAM)));
+		}
+
+		try {
+			return BoggleRoll.read(inputStream);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Gets a roll
+	 * 
+	 * @param rollId
+	 *            The id of the roll
+	 * @return The roll
+	 */
+	public BoggleRoll getRoll(int rollId) {
+		return rolls[rollId];
+	}
+
+	/**
+	 * Gets the letters of every cell in a roll
+	 * 
+	 * @param rollId
+	 *            The id of the roll
+	 * @return The letters indexed by cell
+	 */
+	public byte[][] getLetters(int rollId) {
+		return letters[rollId];
+	}
+
+	/**
+	 * Copies the characters making up a path in to a buffer
+	 * 
+	 * @param rollGraph
+	 *            The path
+	 * @param buffer
+	 *            The buffer to copy in to. It must be big enough for the path.
+	 * @return The number of bytes copied
+	 */
+	public int getChars(RollGraphWritable rollGraph, byte[] buffer) {
+		byte[][] rollLetters = letters[rollGraph.rollId];
+		int length = 0;
+
+		for (int i = 0; i < rollGraph.getLength(); i++) {
+			byte[] letterBytes = rollLetters[rollGraph.getCell(i)];
+			System.arraycopy(letterBytes, 0, buffer, length, letterBytes.length);
+			length += letterBytes.length;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Gets the most bytes the characters of a path can take
+	 * 
+	 * @param rollGraph
+	 *            The path
+	 * @return The number of bytes
+	 */
+	public int getMaxCharsLength(RollGraphWritable rollGraph) {
+		return rollGraph.getLength() * maxLetterLength;
+	}
+
+	/**
+	 * Gets the most bytes any cell's letters take. The "qu" die takes two.
+	 * 
+	 * @return The number of bytes
+	 */
+	public int getMaxLetterLength() {
+		return maxLetterLength;
+	}
+
+	/**
+	 * Sets the text to the characters making up a path
+	 * 
+	 * @param rollGraph
+	 *            The path
+	 * @param word
+	 *            The text to set
+	 */
+	public void getWord(RollGraphWritable rollGraph, Text word) {
+		if (wordBytes.length < getMaxCharsLength(rollGraph)) {
+			wordBytes = Arrays.copyOf(wordBytes, getMaxCharsLength(rollGraph) * 2);
+		}
+
+		word.set(wordBytes, 0, getChars(rollGraph, wordBytes));
+	}
+}
@@ -0,0 +1,118 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A custom writable with a word and the id of the roll it was found in. The keys sort by roll and then by word, so
+ * the same word found along different paths arrives next to itself. The hash only uses the roll so every word of a
+ * roll goes to the same reducer.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class RollWordWritable implements WritableComparable<RollWordWritable> {
+	/** The id of the roll in the batch the word was found in. Always 0 when a single roll is processed. */
+	private int rollId;
+
+	/** The word */
+	private Text word = new Text();
+
+	/**
+	 * Empty constructor for serialization
+	 */
+	public RollWordWritable() {
+	}
+
+	/**
+	 * Sets the roll and word
+	 * 
+	 * @param rollId
+	 *            The id of the roll
+	 * @param word
+	 *            The word
+	 */
+	public void set(int rollId, String word) {
+		this.rollId = rollId;
+		this.word.set(word);
+	}
+
+	/**
+	 * Gets the id of the roll
+	 * 
+	 * @return The roll id
+	 */
+	public int getRollId() {
+		return rollId;
+	}
+
+	/**
+	 * Gets the word
+	 * 
+	 * @return The word
+	 */
+	public Text getWord() {
+		return word;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, rollId);
+		word.write(out);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		rollId = WritableUtils.readVInt(in);
+		word.readFields(in);
+	}
+
+	@Override
+	public int compareTo(RollWordWritable other) {
+		if (rollId != other.rollId) {
+			return rollId < other.rollId ? -1 : 1;
+		}
+
+		return word.compareTo(other.word);
+	}
+
+	@Override
+	public int hashCode() {
+		return rollId;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof RollWordWritable && compareTo((RollWordWritable) other) == 0;
+	}
+
+	@Override
+	public String toString() {
+		return rollId + "\t" + word;
+	}
+
+	/**
+	 * Groups the keys by roll only so a reducer sees all of a roll's words in order
+	 */
+	public static class RollComparator extends WritableComparator {
+		/**
+		 * Constructor
+		 */
+		public RollComparator() {
+			super(RollWordWritable.class, true);
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public int compare(WritableComparable key1, WritableComparable key2) {
+			int rollId1 = ((RollWordWritable) key1).rollId;
+			int rollId2 = ((RollWordWritable) key2).rollId;
+
+			return rollId1 < rollId2 ? -1 : rollId1 == rollId2 ? 0 : 1;
+		}
+	}
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskReport;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormatCounter;
+
+/**
+ * Collects the metrics for every traversal iteration and writes them out as a JSON and a CSV report. The mappers count
+ * the nodes they expand, the children they write and the children the Bloom Filter or trie throws out by path length.
+ * The rest comes from the job and task counters.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class TraversalMetrics {
+	/** The counter group the mappers count the nodes by path length in */
+	public static final String COUNTER_GROUP = "bogglemetrics";
+
+	/** The counter for the nodes whose children were expanded */
+	public static final String EXPANDED = "expanded";
+
+	/** The counter for the children that passed the Bloom Filter or trie */
+	public static final String CHILDREN = "children";
+
+	/** The counter for the children thrown out by the Bloom Filter or trie */
+	public static final String PRUNED = "pruned";
+
+	/** The longest path length counted by itself. Longer paths are counted with it to stay under the counter limit. */
+	public static final int MAX_LENGTH = 12;
+
+	/** The metrics for every iteration run so far */
+	private ArrayList<Iteration> iterations = new ArrayList<Iteration>();
+
+	/**
+	 * Gets the name of the counter for a path length
+	 * 
+	 * @param kind
+	 *            The kind of counter
+	 * @param length
+	 *            The number of cells in the path
+	 * @return The counter name
+	 */
+	public static String getCounterName(String kind, int length) {
+		return kind + "." + Math.min(length, MAX_LENGTH);
+	}
+
+	/**
+	 * Adds the metrics for a finished iteration
+	 * 
+	 * @param job
+	 *            The finished job
+	 * @param iteration
+	 *            The iteration number
+	 * @param runner
+	 *            Where the iteration ran
+	 * @param frontierIn
+	 *            The number of nodes the iteration read
+	 * @param frontierOut
+	 *            The number of nodes the iteration wrote for the next iteration
+	 * @param bytesRead
+	 *            The bytes in the files the iteration read
+	 * @param bytesWritten
+	 *            The bytes in the files the iteration wrote
+	 * @param elapsedMillis
+	 *            The time the job took
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void addIteration(Job job, int iteration, String runner, long frontierIn, long frontierOut,
+			long bytesRead, long bytesWritten, long elapsedMillis) throws IOException, InterruptedException {
+		Counters counters = job.getCounters();
+
+		Iteration metrics = new Iteration();
+		metrics.iteration = iteration;
+		metrics.runner = runner;
+		metrics.frontierIn = frontierIn;
+		metrics.frontierOut = frontierOut;
+		metrics.bytesRead = bytesRead;
+		metrics.bytesWritten = bytesWritten;
+		metrics.serializedBytes = counters.findCounter("boggle", "serializedbytes").getValue();
+		metrics.elapsedMillis = elapsedMillis;
+
+		for (int length = 1; length <= MAX_LENGTH; length++) {
+			metrics.expanded[length] = counters.findCounter(COUNTER_GROUP, getCounterName(EXPANDED, length))
+					.getValue();
+			metrics.children[length] = counters.findCounter(COUNTER_GROUP, getCounterName(CHILDREN, length))
+					.getValue();
+			metrics.pruned[length] = counters.findCounter(COUNTER_GROUP, getCounterName(PRUNED, length)).getValue();
+		}
+
+		TaskReport[] reports = job.getTaskReports(TaskType.MAP);
+
+		if (reports != null) {
+			// The local job runner doesn't keep task reports
+			for (TaskReport report : reports) {
+				Counters taskCounters = report.getTaskCounters();
+
+				Task task = new Task();
+				task.taskId = report.getTaskId();
+				task.records = taskCounters.findCounter(TaskCounter.MAP_INPUT_RECORDS).getValue();
+				task.bytesRead = taskCounters.findCounter(FileInputFormatCounter.BYTES_READ).getValue();
+				task.serializedBytes = taskCounters.findCounter("boggle", "serializedbytes").getValue();
+				task.millis = report.getFinishTime() - report.getStartTime();
+
+				metrics.tasks.add(task);
+			}
+		}
+
+		iterations.add(metrics);
+	}
+
+	/**
+	 * Writes the metrics for every iteration as JSON and a summary of every iteration as CSV
+	 * 
+	 * @param fileSystem
+	 *            The file system to write to
+	 * @param jsonPath
+	 *            The file to write the JSON to
+	 * @param csvPath
+	 *            The file to write the CSV to
+	 * @throws IOException
+	 */
+	public void write(FileSystem fileSystem, Path jsonPath, Path csvPath) throws IOException {
+		Writer writer = new OutputStreamWriter(fileSystem.create(jsonPath), "UTF-8");
+
+		try {
+			writer.write("[\n");
+
+			for (int i = 0; i < iterations.size(); i++) {
+				writer.write(iterations.get(i).toJson());
+				writer.write(i < iterations.size() - 1 ? ",\n" : "\n");
+			}
+
+			writer.write("]\n");
+		} finally {
+			writer.close();
+		}
+
+		writer = new OutputStreamWriter(fileSystem.create(csvPath), "UTF-8");
+
+		try {
+			writer.write("iteration,runner,frontierIn,frontierOut,bytesRead,bytesWritten,serializedBytes,"
+					+ "elapsedMillis,nanosPerRecord,mapTasks,maxTaskRecords,maxTaskMillis\n");
+
+			for (Iteration iteration : iterations) {
+				writer.write(iteration.toCsv());
+				writer.write("\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Gets the time per record
+	 * 
+	 * @param millis
+	 *            The time taken
+	 * @param records
+	 *            The number of records
+	 * @return The nanoseconds per record or 0 if there weren't any records
+	 */
+	private static double getNanosPerRecord(long millis, long records) {
+		return records == 0 ? 0 : millis * 1000000.0 / records;
+	}
+
+	/**
+	 * Gets the part of a total
+	 * 
+	 * @param part
+	 *            The part
+	 * @param total
+	 *            The total
+	 * @return The ratio or 0 if the total is 0
+	 */
+	private static double getRatio(long part, long total) {
+		return total == 0 ? 0 : (double) part / total;
+	}
+
+	/**
+	 * The metrics for an iteration
+	 */
+	private static class Iteration {
+		/** The iteration number */
+		private int iteration;
+
+		/** Where the iteration ran */
+		private String runner;
+
+		/** The number of nodes read */
+		private long frontierIn;
+
+		/** The number of nodes written for the next iteration */
+		private long frontierOut;
+
+		/** The bytes in the files read */
+		private long bytesRead;
+
+		/** The bytes in the files written */
+		private long bytesWritten;
+
+		/** The bytes of the nodes written before compression */
+		private long serializedBytes;
+
+		/** The time the job took */
+		private long elapsedMillis;
+
+		/** The nodes expanded by path length */
+		private long[] expanded = new long[MAX_LENGTH + 1];
+
+		/** The children that passed the Bloom Filter or trie by path length */
+		private long[] children = new long[MAX_LENGTH + 1];
+
+		/** The children thrown out by the Bloom Filter or trie by path length */
+		private long[] pruned = new long[MAX_LENGTH + 1];
+
+		/** The map tasks */
+		private ArrayList<Task> tasks = new ArrayList<Task>();
+
+		/**
+		 * Formats the iteration as a JSON object
+		 * 
+		 * @return The JSON
+		 */
+		public String toJson() {
+			StringBuilder json = new StringBuilder();
+
+			json.append("  {\"iteration\": ").append(iteration);
+			json.append(", \"runner\": \"").append(runner).append("\"");
+			json.append(", \"frontierIn\": ").append(frontierIn);
+			json.append(", \"frontierOut\": ").append(frontierOut);
+			json.append(", \"bytesRead\": ").append(bytesRead);
+			json.append(", \"bytesWritten\": ").append(bytesWritten);
+			json.append(", \"serializedBytes\": ").append(serializedBytes);
+			json.append(", \"elapsedMillis\": ").append(elapsedMillis);
+			json.append(", \"nanosPerRecord\": ").append(getNanosPerRecord(elapsedMillis, frontierIn));
+
+			json.append(",\n   \"lengths\": [");
+
+			boolean first = true;
+
+			for (int length = 1; length <= MAX_LENGTH; length++) {
+				long tested = children[length] + pruned[length];
+
+				if (expanded[length] == 0 && tested == 0) {
+					continue;
+				}
+
+				json.append(first ? "\n    " : ",\n    ");
+				json.append("{\"length\": ").append(length == MAX_LENGTH ? "\"" + length + "+\"" : length);
+				json.append(", \"expanded\": ").append(expanded[length]);
+				json.append(", \"children\": ").append(children[length]);
+				json.append(", \"pruned\": ").append(pruned[length]);
+				json.append(", \"fanOut\": ").append(
+						getRatio(children[Math.min(length + 1, MAX_LENGTH)], expanded[length]));
+				json.append(", \"rejectRate\": ").append(getRatio(pruned[length], tested));
+				json.append("}");
+
+				first = false;
+			}
+
+			json.append("],\n   \"tasks\": [");
+
+			for (int i = 0; i < tasks.size(); i++) {
+				Task task = tasks.get(i);
+
+				json.append(i == 0 ? "\n    " : ",\n    ");
+				json.append("{\"task\": \"").append(task.taskId).append("\"");
+				json.append(", \"records\": ").append(task.records);
+				json.append(", \"bytesRead\": ").append(task.bytesRead);
+				json.append(", \"serializedBytes\": ").append(task.serializedBytes);
+				json.append(", \"millis\": ").append(task.millis);
+				json.append(", \"nanosPerRecord\": ").append(getNanosPerRecord(task.millis, task.records));
+				json.append("}");
+			}
+
+			json.append("]}");
+
+			return json.toString();
+		}
+
+		/**
+		 * Formats the iteration as a CSV line
+		 * 
+		 * @return The CSV line
+		 */
+		public String toCsv() {
+			long maxTaskRecords = 0;
+			long maxTaskMillis = 0;
+
+			for (Task task : tasks) {
+				maxTaskRecords = Math.max(maxTaskRecords, task.records);
+				maxTaskMillis = Math.max(maxTaskMillis, task.millis);
+			}
+
+			return iteration + "," + runner + "," + frontierIn + "," + frontierOut + "," + bytesRead + ","
+					+ bytesWritten + "," + serializedBytes + "," + elapsedMillis + ","
+					+ getNanosPerRecord(elapsedMillis, frontierIn) + "," + tasks.size() + "," + maxTaskRecords + ","
+					+ maxTaskMillis;
+		}
+	}
+
+	/**
+	 * The metrics for a map task
+	 */
+	private static class Task {
+		/** The task's id */
+		private String taskId;
+
+		/** The number of nodes read */
+		private long records;
+
+		/** The bytes read */
+		private long bytesRead;
+
+		/** The bytes of the nodes written before compression */
+		private long serializedBytes;
+
+		/** The time the task took */
+		private long millis;
+	}
+}
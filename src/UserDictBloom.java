@@ -1,10 +1,9 @@
-import java.io.BufferedReader;
 import java.io.DataOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -14,74 +13,73 @@ import org.apache.hadoop.util.bloom.Key;
 import org.apache.hadoop.util.hash.Hash;
 
 public class UserDictBloom {
-	/** The vector size for the Bloom Filter */
-	public static final int VECTOR_SIZE = 10485760;
-	/** The number of hashes for the Bloom Filter */
-	public static final int NBHASH = 6;
+	/** The default false positive rate to size the Bloom Filter for */
+	public static final double FALSE_POSITIVE_RATE_DEFAULT = 0.01;
 	/** The type of hashing to use for the Bloom Filter */
 	public static final int HASH_TYPE = Hash.MURMUR_HASH;
+	/** The number of prefixes that aren't in the dictionary to test for the measured false positive rate */
+	private static final int FALSE_POSITIVE_PROBES = 1000000;
 
 	public static void main(String args[]) {
 		try {
 			String wordFile = null;
 			String bloomFile = null;
+			double falsePositiveRate = FALSE_POSITIVE_RATE_DEFAULT;
 
-			if (args.length == 2) {
+			if (args.length == 2 || args.length == 3) {
 				wordFile = args[0];
 				bloomFile = args[1];
+
+				if (args.length == 3) {
+					falsePositiveRate = Double.parseDouble(args[2]);
+				}
 			} else if (args.length == 0) {
 				wordFile = "/usr/share/dict/words";
 				bloomFile = "bloom.out";
 			} else {
-				System.out.println("Usage <pathtodictionary> <pathtobloomfile>");
+				System.out.println("Usage <pathtodictionary> <pathtobloomfile> [falsepositiverate]");
 			}
 
 			System.out.println("Reading dictionary from " + wordFile + " outputting Bloom Filter to " + bloomFile);
 
-			// Go through every word in the words file
-			BufferedReader dict = new BufferedReader(new FileReader(wordFile));
-
-			String line;
+			Configuration configuration = new Configuration();
+			FileSystem fs = FileSystem.get(configuration);
 
-			Pattern words = Pattern.compile("[a-z]*");
+			// Go through every normalized word in the words file
+			List<String> words = DictionaryCompiler.readWords(fs, new Path(wordFile));
 
-			BloomFilter bloomFilter = new BloomFilter(VECTOR_SIZE, NBHASH, HASH_TYPE);
-			
 			HashSet<String> hashSet = new HashSet<String>();
 			long size = 0;
-			long totalWords = 0;
-
-			while ((line = dict.readLine()) != null) {
-				// Normalize all words to lower case and remove all dashes
-				line = line.toLowerCase().replace("-", "");
-				Matcher matcher = words.matcher(line);
-
-				if (matcher.matches()) {
-					// Add to Bloom Filter breaking up the word along the way
-					for (int i = 0; i < line.length(); i++) {
-						String wordPiece = line.substring(0, i + 1);
-						bloomFilter.add(new Key(wordPiece.getBytes()));
-						
-						if (!hashSet.contains(wordPiece)) {
-							hashSet.add(wordPiece);
-							size += wordPiece.length();
-						}
+
+			for (String word : words) {
+				// Break up the word along the way
+				for (int i = 0; i < word.length(); i++) {
+					String wordPiece = word.substring(0, i + 1);
+
+					if (!hashSet.contains(wordPiece)) {
+						hashSet.add(wordPiece);
+						size += wordPiece.length();
 					}
-					
-					totalWords++;
-				} else {
-					System.out.println("Skipping entry: \"" + line + "\"");
 				}
 			}
-			
-			System.out.println("Total Words:" + totalWords + " Unique Word Parts:" + hashSet.size() + " Total Word Parts Size:" + size);
 
-			dict.close();
+			System.out.println("Total Words:" + words.size() + " Unique Word Parts:" + hashSet.size() + " Total Word Parts Size:" + size);
 
-			// Write out the Bloom Filter to a file
-			Configuration configuration = new Configuration();
-			FileSystem fs = FileSystem.get(configuration);
+			// Size the Bloom Filter for the prefixes that were really found
+			int vectorSize = getVectorSize(hashSet.size(), falsePositiveRate);
+			int nbHash = getNbHash(hashSet.size(), vectorSize);
+
+			BloomFilter bloomFilter = new BloomFilter(vectorSize, nbHash, HASH_TYPE);
+
+			for (String wordPiece : hashSet) {
+				bloomFilter.add(new Key(wordPiece.getBytes()));
+			}
 
+			System.out.println("Vector Size:" + vectorSize + " Hashes:" + nbHash + " Bytes:" + (vectorSize / 8)
+					+ " Requested False Positive Rate:" + falsePositiveRate + " Measured False Positive Rate:"
+					+ measureFalsePositiveRate(bloomFilter, hashSet));
+
+			// Write out the Bloom Filter to a file. The header has the vector size, hashes and hash type.
 			DataOutputStream outputStream = fs.create(new Path(bloomFile));
 			bloomFilter.write(outputStream);
 
@@ -90,4 +88,69 @@ public class UserDictBloom {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Gets the number of bits needed for a false positive rate (m = -n ln(p) / ln(2)^2)
+	 * 
+	 * @param entries
+	 *            The number of entries that will be added
+	 * @param falsePositiveRate
+	 *            The false positive rate wanted
+	 * @return The number of bits
+	 */
+	public static int getVectorSize(long entries, double falsePositiveRate) {
+		double bits = -Math.max(entries, 1) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+
+		if (bits > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("False positive rate of " + falsePositiveRate + " for " + entries
+					+ " entries needs more than " + Integer.MAX_VALUE + " bits");
+		}
+
+		return (int) Math.ceil(bits);
+	}
+
+	/**
+	 * Gets the number of hashes with the lowest false positive rate (k = m / n ln(2))
+	 * 
+	 * @param entries
+	 *            The number of entries that will be added
+	 * @param vectorSize
+	 *            The number of bits
+	 * @return The number of hashes
+	 */
+	public static int getNbHash(long entries, int vectorSize) {
+		return Math.max(1, (int) Math.round((double) vectorSize / Math.max(entries, 1) * Math.log(2)));
+	}
+
+	/**
+	 * Measures the false positive rate with the kind of keys the mapper tests. A prefix from the dictionary has a
+	 * letter added to it and is tested if that isn't a prefix too.
+	 * 
+	 * @param bloomFilter
+	 *            The Bloom Filter to test
+	 * @param prefixes
+	 *            All prefixes in the dictionary
+	 * @return The rate of tested keys that passed the membership test
+	 */
+	private static double measureFalsePositiveRate(BloomFilter bloomFilter, HashSet<String> prefixes) {
+		ArrayList<String> prefixList = new ArrayList<String>(prefixes);
+		Random random = new Random(0);
+
+		long tests = 0;
+		long falsePositives = 0;
+
+		for (int i = 0; i < FALSE_POSITIVE_PROBES && !prefixList.isEmpty(); i++) {
+			String key = prefixList.get(random.nextInt(prefixList.size())) + (char) ('a' + random.nextInt(26));
+
+			if (!prefixes.contains(key)) {
+				tests++;
+
+				if (bloomFilter.membershipTest(new Key(key.getBytes()))) {
+					falsePositives++;
+				}
+			}
+		}
+
+		return tests == 0 ? 0 : (double) falsePositives / tests;
+	}
 }
@@ -0,0 +1,53 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+public class UserDictTrie {
+	public static void main(String args[]) {
+		try {
+			String wordFile = null;
+			String trieFile = null;
+
+			if (args.length == 2) {
+				wordFile = args[0];
+				trieFile = args[1];
+			} else if (args.length == 0) {
+				wordFile = "/usr/share/dict/words";
+				trieFile = "trie.out";
+			} else {
+				System.out.println("Usage <pathtodictionary> <pathtotriefile>");
+			}
+
+			System.out.println("Reading dictionary from " + wordFile + " outputting trie to " + trieFile);
+
+			Configuration configuration = new Configuration();
+			FileSystem fs = FileSystem.get(configuration);
+
+			// Go through every normalized word in the words file
+			List<String> words = DictionaryCompiler.readWords(fs, new Path(wordFile));
+
+			PrefixTrie.Builder builder = new PrefixTrie.Builder();
+
+			for (String word : words) {
+				// Add to the trie, which adds all of the word's prefixes along the way
+				builder.add(word);
+			}
+
+			System.out.println("Total Words:" + words.size() + " Trie Nodes:" + builder.size());
+
+			PrefixTrie trie = builder.build();
+
+			// Write out the trie to a file
+			DataOutputStream outputStream = fs.create(new Path(trieFile));
+			trie.write(outputStream);
+
+			outputStream.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
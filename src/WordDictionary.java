@@ -0,0 +1,92 @@
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The dictionary used to check that the potential words really are words. Uses the prefix trie if
+ * one is configured, otherwise the compiled dictionary. The checks compare the key's bytes without creating any
+ * objects.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class WordDictionary {
+	/** The compiled dictionary. Null if the trie is used instead. */
+	private CompiledDictionary dictionary;
+
+	/** The prefix trie with the dictionary. Null if the compiled dictionary is used instead. */
+	private PrefixTrie trie;
+
+	/**
+	 * Loads the dictionary
+	 * 
+	 * @param configuration
+	 *            The configuration object
+	 * @throws IOException
+	 */
+	public WordDictionary(Configuration configuration) throws IOException {
+		if (configuration.get(BoggleDriver.TRIE_PARAM) != null) {
+			// The trie already knows which prefixes are words so the dictionary doesn't need to be read
+			trie = PrefixTrie.open(configuration);
+		} else {
+			dictionary = CompiledDictionary.open(configuration);
+		}
+	}
+
+	/**
+	 * Checks if the characters are a word
+	 * 
+	 * @param key
+	 *            The characters making up the node
+	 * @param value
+	 *            The RollGraphWritable representing the nodes
+	 * @return If the characters are a word
+	 */
+	public boolean contains(Text key, RollGraphWritable value) {
+		return contains(key.getBytes(), key.getLength(), value.trieNode);
+	}
+
+	/**
+	 * Checks if the characters are a word
+	 * 
+	 * @param bytes
+	 *            The characters making up the node
+	 * @param length
+	 *            The number of bytes from the start of the array
+	 * @param trieNode
+	 *            The PrefixTrie node for the characters or PrefixTrie.NO_NODE if it hasn't been looked up
+	 * @return If the characters are a word
+	 */
+	public boolean contains(byte[] bytes, int length, int trieNode) {
+		if (trie == null) {
+			return dictionary.contains(bytes, 0, length);
+		} else if (trieNode != PrefixTrie.NO_NODE) {
+			// The mapper already looked up the node
+			return trie.isWord(trieNode);
+		}
+
+		return trie.isWord(trie.find(bytes, 0, length));
+	}
+
+	/**
+	 * Checks if any longer word starts with the characters
+	 * 
+	 * @param bytes
+	 *            The characters making up the node
+	 * @param length
+	 *            The number of bytes from the start of the array
+	 * @param trieNode
+	 *            The PrefixTrie node for the characters or PrefixTrie.NO_NODE if it hasn't been looked up
+	 * @return If the node can lead to another word
+	 */
+	public boolean hasLongerWords(byte[] bytes, int length, int trieNode) {
+		if (trie == null) {
+			return dictionary.hasLongerWords(bytes, 0, length);
+		} else if (trieNode == PrefixTrie.NO_NODE) {
+			trieNode = trie.find(bytes, 0, length);
+		}
+
+		return trie.hasChildren(trieNode);
+	}
+}
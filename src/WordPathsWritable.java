@@ -0,0 +1,112 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A custom writable with the number of paths a word was found along and one of those paths to represent them.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class WordPathsWritable implements Writable {
+	/** The number of paths the word was found along. Merged states can stand for more paths than fit in an int. */
+	private long count;
+
+	/** If the representative path is kept */
+	private boolean hasPath;
+
+	/** The representative path. The path with the lowest cells is kept so the output doesn't depend on the order. */
+	private RollGraphWritable path = new RollGraphWritable();
+
+	/**
+	 * Empty constructor for serialization
+	 */
+	public WordPathsWritable() {
+	}
+
+	/**
+	 * Sets the writable to a single path
+	 * 
+	 * @param path
+	 *            The path the word was found along or null if the path isn't kept
+	 * @param count
+	 *            The number of paths the path stands for
+	 */
+	public void set(RollGraphWritable path, long count) {
+		this.count = count;
+		hasPath = path != null;
+
+		if (hasPath) {
+			this.path.set(path);
+		}
+	}
+
+	/**
+	 * Resets the writable so that others can be merged in to it
+	 */
+	public void clear() {
+		count = 0;
+		hasPath = false;
+	}
+
+	/**
+	 * Adds the paths of another writable to this one
+	 * 
+	 * @param other
+	 *            The writable to merge in
+	 */
+	public void merge(WordPathsWritable other) {
+		count += other.count;
+
+		if (other.hasPath && (!hasPath || other.path.compareCells(path) < 0)) {
+			path.set(other.path);
+			hasPath = true;
+		}
+	}
+
+	/**
+	 * Gets the number of paths the word was found along
+	 * 
+	 * @return The number of paths
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the representative path
+	 * 
+	 * @return The path or null if the path isn't kept
+	 */
+	public RollGraphWritable getPath() {
+		return hasPath ? path : null;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, count);
+		out.writeBoolean(hasPath);
+
+		if (hasPath) {
+			path.write(out);
+		}
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		count = WritableUtils.readVLong(in);
+		hasPath = in.readBoolean();
+
+		if (hasPath) {
+			path.readFields(in);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return hasPath ? count + "\t" + path : String.valueOf(count);
+	}
+}
@@ -0,0 +1,200 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A custom writable with the total score of a roll's words and the best scoring words. Only a fixed number of the
+ * best words are kept in a heap, so merging the scores never holds every word of a big roll.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class WordScoresWritable implements Writable {
+	/** Orders the words from the worst to the best. Words with the same score are ordered alphabetically. */
+	private static final Comparator<ScoredWord> WORST_FIRST = new Comparator<ScoredWord>() {
+		@Override
+		public int compare(ScoredWord word1, ScoredWord word2) {
+			if (word1.score != word2.score) {
+				return word1.score < word2.score ? -1 : 1;
+			}
+
+			return word2.word.compareTo(word1.word);
+		}
+	};
+
+	/** The total points of all of the words */
+	private long totalScore;
+
+	/** The number of words scored */
+	private int wordCount;
+
+	/** The best words with the worst of them at the head so it can be replaced */
+	private PriorityQueue<ScoredWord> topWords = new PriorityQueue<ScoredWord>(16, WORST_FIRST);
+
+	/**
+	 * Empty constructor for serialization
+	 */
+	public WordScoresWritable() {
+	}
+
+	/**
+	 * Resets the writable so that words can be added to it
+	 */
+	public void clear() {
+		totalScore = 0;
+		wordCount = 0;
+		topWords.clear();
+	}
+
+	/**
+	 * Scores a word and adds it to the total
+	 * 
+	 * @param word
+	 *            The word to score
+	 * @param limit
+	 *            The number of best words to keep
+	 */
+	public void add(String word, int limit) {
+		int score = BoggleRoll.getWordScore(word.length());
+
+		totalScore += score;
+		wordCount++;
+
+		addTopWord(word, score, limit);
+	}
+
+	/**
+	 * Adds the scores of another writable to this one
+	 * 
+	 * @param other
+	 *            The writable to merge in
+	 * @param limit
+	 *            The number of best words to keep
+	 */
+	public void merge(WordScoresWritable other, int limit) {
+		totalScore += other.totalScore;
+		wordCount += other.wordCount;
+
+		for (ScoredWord scoredWord : other.topWords) {
+			addTopWord(scoredWord.word, scoredWord.score, limit);
+		}
+	}
+
+	/**
+	 * Keeps a word if it's one of the best words
+	 * 
+	 * @param word
+	 *            The word
+	 * @param score
+	 *            The word's points
+	 * @param limit
+	 *            The number of best words to keep
+	 */
+	private void addTopWord(String word, int score, int limit) {
+		if (topWords.size() < limit) {
+			topWords.add(new ScoredWord(word, score));
+			return;
+		}
+
+		ScoredWord worst = topWords.peek();
+
+		if (worst != null && (score > worst.score || (score == worst.score && word.compareTo(worst.word) < 0))) {
+			// Replace the worst of the best words
+			topWords.poll();
+			topWords.add(new ScoredWord(word, score));
+		}
+	}
+
+	/**
+	 * Gets the total points of all of the words
+	 * 
+	 * @return The total score
+	 */
+	public long getTotalScore() {
+		return totalScore;
+	}
+
+	/**
+	 * Gets the number of words scored
+	 * 
+	 * @return The number of words
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, totalScore);
+		WritableUtils.writeVInt(out, wordCount);
+
+		WritableUtils.writeVInt(out, topWords.size());
+
+		for (ScoredWord scoredWord : topWords) {
+			Text.writeString(out, scoredWord.word);
+			WritableUtils.writeVInt(out, scoredWord.score);
+		}
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		clear();
+
+		totalScore = WritableUtils.readVLong(in);
+		wordCount = WritableUtils.readVInt(in);
+
+		int size = WritableUtils.readVInt(in);
+
+		for (int i = 0; i < size; i++) {
+			topWords.add(new ScoredWord(Text.readString(in), WritableUtils.readVInt(in)));
+		}
+	}
+
+	@Override
+	public String toString() {
+		// Write the best words first
+		ArrayList<ScoredWord> sortedWords = new ArrayList<ScoredWord>(topWords);
+		Collections.sort(sortedWords, Collections.reverseOrder(WORST_FIRST));
+
+		StringBuilder builder = new StringBuilder();
+		builder.append(totalScore).append("\t").append(wordCount).append("\t");
+
+		for (ScoredWord scoredWord : sortedWords) {
+			builder.append(scoredWord.word).append(":").append(scoredWord.score).append(",");
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * A word with its points
+	 */
+	private static class ScoredWord {
+		/** The word */
+		private String word;
+
+		/** The points for the word */
+		private int score;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param word
+		 *            The word
+		 * @param score
+		 *            The points for the word
+		 */
+		public ScoredWord(String word, int score) {
+			this.word = word;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Writes the words confirmed in the traversal iterations as text. The iterations compress their output with the
+ * iteration codec, but the words are the answer so they are written the same way the final job writes them.
+ * 
+ * @author jesseanderson
+ * 
+ */
+public class WordsOutputFormat<K, V> extends TextOutputFormat<K, V> {
+	@Override
+	public RecordWriter<K, V> getRecordWriter(TaskAttemptContext job) throws IOException, InterruptedException {
+		Configuration configuration = job.getConfiguration();
+		String separator = configuration.get(SEPERATOR, "\t");
+
+		Class<? extends CompressionCodec> codecClass = configuration.getClass(BoggleDriver.FINAL_CODEC_PARAM, null,
+				CompressionCodec.class);
+
+		if (codecClass == null) {
+			Path file = getDefaultWorkFile(job, "");
+			FileSystem fileSystem = file.getFileSystem(configuration);
+
+			return new LineRecordWriter<K, V>(fileSystem.create(file, false), separator);
+		}
+
+		// Compress the words with the final job's codec
+		CompressionCodec codec = ReflectionUtils.newInstance(codecClass, configuration);
+		Path file = getDefaultWorkFile(job, codec.getDefaultExtension());
+		FileSystem fileSystem = file.getFileSystem(configuration);
+
+		DataOutputStream outputStream = new DataOutputStream(codec.createOutputStream(fileSystem.create(file, false)));
+
+		return new LineRecordWriter<K, V>(outputStream, separator);
+	}
+}